@@ -0,0 +1,371 @@
+package com.fallenflame.game;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.Json;
+import com.badlogic.gdx.utils.JsonReader;
+import com.badlogic.gdx.utils.JsonValue;
+import com.badlogic.gdx.utils.JsonWriter;
+import com.fallenflame.game.util.JsonAssetManager;
+
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Simulates many level/bot/seed combinations concurrently on a pool of worker threads
+ * and collects metrics for each run.
+ *
+ * Every run gets its own headless LevelController, and so its own Box2D World.  Headless
+ * levels never touch lights, fog, text, sound or BGMController, and each worker thread
+ * asks JsonAssetManager for its own copies of filmstrips, so runs cannot interfere.
+ * InputBindings is never read off the main thread, since bots replace the keyboard.
+ *
+ * The asset directory must be loaded and allocated before running a batch.
+ */
+public class BatchRunner {
+    /** Default number of ticks a run may last (10 minutes at 60Hz) */
+    public static final int DEFAULT_MAX_TICKS = 36000;
+
+    /**
+     * A stand-in for the player that decides the input of every tick.
+     */
+    public interface Bot {
+        /**
+         * Fills in the input for the coming tick.
+         *
+         * @param level the level being played
+         * @param input the input to fill in (cleared before each call)
+         */
+        void getInput(LevelController level, PlayerInput input);
+    }
+
+    /**
+     * Bot that never moves.  Useful to check that enemies and the ghost behave.
+     */
+    public static class IdleBot implements Bot {
+        public void getInput(LevelController level, PlayerInput input) { }
+    }
+
+    /**
+     * Bot that wanders in random directions, sometimes sprinting, sneaking or throwing
+     * a flare.  Seeded so that a run can be repeated exactly.
+     */
+    public static class RandomBot implements Bot {
+        /** Number of ticks to keep a direction for */
+        private static final int WANDER_TICKS = 30;
+
+        private final Random random;
+        private int ticksLeft;
+        private float moveX, moveY;
+        private boolean sprint, sneak;
+
+        public RandomBot(long seed) {
+            random = new Random(seed);
+        }
+
+        public void getInput(LevelController level, PlayerInput input) {
+            if (ticksLeft-- <= 0) {
+                ticksLeft = WANDER_TICKS;
+                moveX = random.nextInt(3) - 1;
+                moveY = random.nextInt(3) - 1;
+                sprint = random.nextInt(4) == 0;
+                sneak = !sprint && random.nextInt(4) == 0;
+                input.flare = random.nextInt(8) == 0;
+                input.flareAngle = (float) (random.nextDouble() * 2 * Math.PI);
+            }
+            input.moveX = moveX;
+            input.moveY = moveY;
+            input.sprint = sprint;
+            input.sneak = sneak;
+        }
+    }
+
+    /**
+     * One level/bot/seed combination to simulate.
+     */
+    public static class Run {
+        /** Path of the level JSON, relative to the jsons folder */
+        public String levelPath;
+        /** Seed for the level (and the bot, if it is random) */
+        public long seed;
+        /** Bot name: "idle", "random" or "replay:<file>" */
+        public String bot;
+        /** Maximum number of ticks to simulate */
+        public int maxTicks = DEFAULT_MAX_TICKS;
+
+        public Run() { }
+
+        public Run(String levelPath, long seed, String bot, int maxTicks) {
+            this.levelPath = levelPath;
+            this.seed = seed;
+            this.bot = bot;
+            this.maxTicks = maxTicks;
+        }
+    }
+
+    /**
+     * Metrics collected for one run.
+     */
+    public static class RunResult {
+        public String levelPath;
+        public long seed;
+        public String bot;
+        /** WIN, LOSS, IN_PROGRESS (ran out of ticks) or ERROR */
+        public String outcome;
+        /** Number of ticks simulated */
+        public long ticks;
+        /** Game time simulated, in seconds */
+        public float simulatedSeconds;
+        /** Wall-clock time of the simulation, in milliseconds */
+        public float wallMillis;
+        /** Average time of a tick, in microseconds */
+        public float meanTickMicros;
+        /** Slowest tick, in microseconds */
+        public float maxTickMicros;
+        /** Number of the slowest tick (to seek to in a replay) */
+        public long maxTick;
+        /** Enemies in the level at the end (including the ghost) */
+        public int enemies;
+        /** Flares the player had left at the end */
+        public int flaresLeft;
+        /** Error message, if the run failed */
+        public String error;
+    }
+
+    /** The global JSON constants */
+    private final JsonValue globalJson;
+    /** Number of worker threads */
+    private final int threads;
+
+    /**
+     * Creates a batch runner
+     *
+     * @param globalJson    the global JSON constants
+     * @param threads       number of worker threads
+     */
+    public BatchRunner(JsonValue globalJson, int threads) {
+        this.globalJson = globalJson;
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * Simulates all the given runs on the worker pool.
+     *
+     * @param runs  the runs to simulate
+     * @return the result of every run, in the same order
+     */
+    public List<RunResult> runAll(List<Run> runs) {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<RunResult> results = new LinkedList<>();
+        try {
+            List<Future<RunResult>> futures = new LinkedList<>();
+            for (Run run : runs) {
+                futures.add(pool.submit(() -> simulate(run)));
+            }
+            Iterator<Run> run = runs.iterator();
+            for (Future<RunResult> future : futures) {
+                Run next = run.next();
+                try {
+                    results.add(future.get());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    results.add(failure(next, e));
+                } catch (ExecutionException e) {
+                    Gdx.app.error("BatchRunner", "Run failed: " + next.levelPath + " seed " + next.seed, e.getCause());
+                    results.add(failure(next, e.getCause()));
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        return results;
+    }
+
+    /**
+     * Creates the result of a run that could not be simulated.
+     *
+     * @param run   the run that failed
+     * @param error what went wrong
+     * @return the result of the run
+     */
+    private static RunResult failure(Run run, Throwable error) {
+        RunResult result = new RunResult();
+        result.levelPath = run.levelPath;
+        result.seed = run.seed;
+        result.bot = run.bot;
+        result.outcome = "ERROR";
+        result.error = error.toString();
+        return result;
+    }
+
+    /**
+     * Simulates a single run on the calling thread.
+     *
+     * @param run   the run to simulate
+     * @return the metrics of the run
+     */
+    public RunResult simulate(Run run) {
+        RunResult result = new RunResult();
+        result.bot = run.bot;
+
+        JsonAssetManager.getInstance().isolateThread();
+        LevelController level = null;
+        try {
+            Bot bot = null;
+            ReplayPlayer replayPlayer = null;
+            if (run.bot != null && run.bot.startsWith("replay:")) {
+                Replay replay = loadReplay(run);
+                level = ReplayPlayer.loadLevel(replay, globalJson, null);
+                // Runs never seek, so the checkpoint at the first tick is enough
+                replayPlayer = new ReplayPlayer(level, replay, Integer.MAX_VALUE);
+            } else {
+                bot = createBot(run);
+                JsonValue levelJson = new JsonReader().parse(Gdx.files.internal("jsons/" + run.levelPath));
+                level = new LevelController();
+                level.setHeadless(true);
+                level.setSeed(run.seed);
+                level.populate(levelJson, globalJson, null);
+                level.setLevelState(LevelController.LevelState.IN_PROGRESS);
+                level.getWorld().setContactListener(level);
+            }
+            result.levelPath = run.levelPath;
+            result.seed = run.seed;
+
+            PlayerInput input = new PlayerInput();
+            long start = System.nanoTime();
+            long maxTickNanos = 0;
+            while (level.getTickCount() < run.maxTicks
+                    && level.getLevelState() == LevelController.LevelState.IN_PROGRESS) {
+                long tickStart;
+                if (replayPlayer != null) {
+                    tickStart = System.nanoTime();
+                    replayPlayer.step();
+                } else {
+                    input.clear();
+                    bot.getInput(level, input);
+                    level.setInput(input);
+                    tickStart = System.nanoTime();
+                    level.step();
+                }
+                long tickNanos = System.nanoTime() - tickStart;
+                if (tickNanos > maxTickNanos) {
+                    maxTickNanos = tickNanos;
+                    result.maxTick = level.getTickCount() - 1;
+                }
+            }
+            long total = System.nanoTime() - start;
+
+            result.outcome = level.getLevelState().name();
+            result.ticks = level.getTickCount();
+            result.simulatedSeconds = result.ticks * level.getTimeStep();
+            result.wallMillis = total / 1e6f;
+            result.meanTickMicros = result.ticks > 0 ? total / 1e3f / result.ticks : 0;
+            result.maxTickMicros = maxTickNanos / 1e3f;
+            result.enemies = level.getEnemies().size();
+            result.flaresLeft = level.getPlayer().getFlareCount();
+        } catch (Exception e) {
+            result.levelPath = run.levelPath;
+            result.seed = run.seed;
+            result.outcome = "ERROR";
+            result.error = e.toString();
+            Gdx.app.error("BatchRunner", "Run failed: " + run.levelPath + " seed " + run.seed, e);
+        } finally {
+            if (level != null) level.dispose();
+            JsonAssetManager.getInstance().releaseThread();
+        }
+        return result;
+    }
+
+    /**
+     * Creates the bot named by a run.
+     *
+     * @param run   the run to create the bot for
+     * @return the bot
+     */
+    private Bot createBot(Run run) {
+        if (run.bot == null || run.bot.equals("idle")) {
+            return new IdleBot();
+        } else if (run.bot.equals("random")) {
+            return new RandomBot(run.seed);
+        }
+        throw new IllegalArgumentException("Unknown bot " + run.bot);
+    }
+
+    /**
+     * Loads the replay named by a run, and points the run at the replay's level and seed.
+     *
+     * @param run   a run whose bot is "replay:<file>"
+     * @return the replay
+     */
+    private Replay loadReplay(Run run) {
+        Replay replay = Replay.load(Gdx.files.local(run.bot.substring("replay:".length())));
+        run.levelPath = replay.levelPath;
+        run.seed = replay.seed;
+        run.maxTicks = Math.min(run.maxTicks, replay.size());
+        return replay;
+    }
+
+    /**
+     * Runs the batch job described by the given JSON file and writes the results.
+     *
+     * The job file may contain "threads" (default: one per core), "maxticks",
+     * "levels" (paths relative to the jsons folder; default: every level in save.json),
+     * "seeds", "bots" and "output" (default: savedata/batch-results.json).  One run is
+     * made for every combination of level, seed and bot.
+     *
+     * @param jobFile       the batch job file
+     * @param globalJson    the global JSON constants
+     * @return the result of every run
+     */
+    public static List<RunResult> runJobFile(FileHandle jobFile, JsonValue globalJson) {
+        JsonReader reader = new JsonReader();
+        JsonValue job = reader.parse(jobFile);
+
+        int threads = job.getInt("threads", Runtime.getRuntime().availableProcessors());
+        int maxTicks = job.getInt("maxticks", DEFAULT_MAX_TICKS);
+        String[] levels;
+        if (job.has("levels")) {
+            levels = job.get("levels").asStringArray();
+        } else {
+            JsonValue saves = reader.parse(Gdx.files.internal("jsons/save.json"));
+            levels = new String[saves.size];
+            for (int i = 0; i < saves.size; i++) {
+                levels[i] = saves.get(i).getString("path");
+            }
+        }
+        long[] seeds = job.has("seeds") ? job.get("seeds").asLongArray() : new long[]{0};
+        String[] bots = job.has("bots") ? job.get("bots").asStringArray() : new String[]{"random"};
+
+        List<Run> runs = new LinkedList<>();
+        for (String level : levels) {
+            for (long seed : seeds) {
+                for (String bot : bots) {
+                    runs.add(new Run(level, seed, bot, maxTicks));
+                }
+            }
+        }
+
+        long start = System.currentTimeMillis();
+        List<RunResult> results = new BatchRunner(globalJson, threads).runAll(runs);
+        Gdx.app.log("BatchRunner", results.size() + " runs on " + threads + " threads in "
+                + (System.currentTimeMillis() - start) + "ms");
+        for (RunResult r : results) {
+            Gdx.app.log("BatchRunner", r.levelPath + " seed " + r.seed + " " + r.bot + ": " + r.outcome
+                    + " after " + r.ticks + " ticks, mean " + r.meanTickMicros + "us, max " + r.maxTickMicros
+                    + "us at tick " + r.maxTick);
+        }
+
+        Json json = new Json();
+        JsonValue.PrettyPrintSettings settings = new JsonValue.PrettyPrintSettings();
+        settings.outputType = JsonWriter.OutputType.json;
+        FileHandle output = Gdx.files.external(job.getString("output", "savedata/batch-results.json"));
+        output.writeString(json.prettyPrint(results, settings), false);
+        return results;
+    }
+}
@@ -362,6 +362,50 @@ public abstract class CharacterModel extends WheelObstacle implements ILight {
         super.update(dt);
     }
 
+    /**
+     * The simulated state of a character, including its movement and animation.
+     */
+    protected static class CharacterState extends ObstacleState {
+        private MovementState move;
+        private final Vector2 movement = new Vector2();
+        private boolean animate;
+        private float walkCool;
+        private FilmStrip filmstrip;
+        private int frame;
+    }
+
+    @Override
+    protected ObstacleState createState() {
+        return new CharacterState();
+    }
+
+    @Override
+    protected void writeState(ObstacleState state) {
+        super.writeState(state);
+        CharacterState s = (CharacterState) state;
+        s.move = move;
+        s.movement.set(movement);
+        s.animate = animate;
+        s.walkCool = walkCool;
+        s.filmstrip = filmstrip;
+        s.frame = filmstrip != null ? filmstrip.getFrame() : 0;
+    }
+
+    @Override
+    public void restoreState(ObstacleState state) {
+        super.restoreState(state);
+        CharacterState s = (CharacterState) state;
+        move = s.move;
+        movement.set(s.movement);
+        animate = s.animate;
+        walkCool = s.walkCool;
+        filmstrip = s.filmstrip;
+        if (filmstrip != null) {
+            filmstrip.setFrame(s.frame);
+            setTexture(filmstrip, textureOffset.x, textureOffset.y);
+        }
+    }
+
     /**
      * @return The X coordinate of the center of texture of the CharacterModel
      */
@@ -0,0 +1,182 @@
+package com.fallenflame.game;
+
+import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.utils.IntArray;
+
+import java.util.Arrays;
+
+/**
+ * {@code CullingGrid} is a static spatial index of drawing bounds, used to find what is on screen without testing
+ * every sprite in the level.
+ *
+ * Items are added once (usually when a level is populated) and then bucketed into a uniform grid of cells, with the
+ * items of all cells packed into a single array. A query only visits the cells the view overlaps, so it costs time in
+ * proportion to what is on screen rather than to the size of the level.
+ */
+public class CullingGrid {
+    /** Default size of a cell (in screen pixels) */
+    public static final float DEFAULT_CELL_SIZE = 256f;
+
+    /** Size of a cell (in screen pixels) */
+    private final float cellSize;
+    /** Bounds of each item, as minX, minY, maxX, maxY */
+    private float[] bounds = new float[64];
+    /** Number of items */
+    private int count;
+
+    /** Bottom left corner of the grid */
+    private float originX, originY;
+    /** Number of cells across and down */
+    private int columns, rows;
+    /** Start of the items of each cell in cellItems (indexed column * rows + row, with one extra entry at the end) */
+    private int[] cellStart = new int[1];
+    /** Items of every cell, cell by cell */
+    private int[] cellItems = new int[0];
+    /** Query in which each item was last found (so items in several cells are only reported once) */
+    private int[] found = new int[0];
+    /** Current query */
+    private int query;
+
+    /**
+     * Creates an empty grid with cells of the default size.
+     */
+    public CullingGrid() {
+        this(DEFAULT_CELL_SIZE);
+    }
+
+    /**
+     * Creates an empty grid.
+     *
+     * @param cellSize The size of a cell (in screen pixels).
+     */
+    public CullingGrid(float cellSize) {
+        this.cellSize = cellSize;
+    }
+
+    /**
+     * Returns the number of items.
+     *
+     * @return The number of items.
+     */
+    public int size() { return count; }
+
+    /**
+     * Removes every item.
+     */
+    public void clear() {
+        count = 0;
+        columns = rows = 0;
+        cellStart = new int[1];
+        cellItems = new int[0];
+    }
+
+    /**
+     * Adds an item. Call build() once every item is added.
+     *
+     * @param area The screen area the item may cover when drawn.
+     *
+     * @return The index of the item (items are numbered from 0 in the order they are added).
+     */
+    public int add(Rectangle area) {
+        if (4 * count + 4 > bounds.length) bounds = Arrays.copyOf(bounds, bounds.length * 2);
+        bounds[4 * count] = area.x;
+        bounds[4 * count + 1] = area.y;
+        bounds[4 * count + 2] = area.x + area.width;
+        bounds[4 * count + 3] = area.y + area.height;
+        return count++;
+    }
+
+    /**
+     * Buckets the items into cells.
+     */
+    public void build() {
+        found = new int[count];
+        query = 0;
+        if (count == 0) {
+            clear();
+            return;
+        }
+        float minX = Float.MAX_VALUE, minY = Float.MAX_VALUE, maxX = -Float.MAX_VALUE, maxY = -Float.MAX_VALUE;
+        for (int i = 0; i < count; i++) {
+            minX = Math.min(minX, bounds[4 * i]);
+            minY = Math.min(minY, bounds[4 * i + 1]);
+            maxX = Math.max(maxX, bounds[4 * i + 2]);
+            maxY = Math.max(maxY, bounds[4 * i + 3]);
+        }
+        originX = minX;
+        originY = minY;
+        columns = (int) ((maxX - minX) / cellSize) + 1;
+        rows = (int) ((maxY - minY) / cellSize) + 1;
+
+        // Count the items of each cell, turn the counts into starts, then fill the cells.
+        cellStart = new int[columns * rows + 1];
+        for (int i = 0; i < count; i++) {
+            for (int x = column(bounds[4 * i]); x <= column(bounds[4 * i + 2]); x++) {
+                for (int y = row(bounds[4 * i + 1]); y <= row(bounds[4 * i + 3]); y++) {
+                    cellStart[x * rows + y + 1]++;
+                }
+            }
+        }
+        for (int c = 0; c < columns * rows; c++) cellStart[c + 1] += cellStart[c];
+        cellItems = new int[cellStart[columns * rows]];
+        int[] next = Arrays.copyOf(cellStart, columns * rows);
+        for (int i = 0; i < count; i++) {
+            for (int x = column(bounds[4 * i]); x <= column(bounds[4 * i + 2]); x++) {
+                for (int y = row(bounds[4 * i + 1]); y <= row(bounds[4 * i + 3]); y++) {
+                    cellItems[next[x * rows + y]++] = i;
+                }
+            }
+        }
+    }
+
+    /**
+     * Finds the items whose bounds overlap a view.
+     *
+     * @param view The view (in screen pixels).
+     * @param out The array to add the indices of the items to (each once, in no particular order).
+     */
+    public void query(Rectangle view, IntArray out) {
+        if (columns == 0) return;
+        float left = view.x, bottom = view.y, right = view.x + view.width, top = view.y + view.height;
+        if (right < originX || top < originY) return;
+        if (left > originX + columns * cellSize || bottom > originY + rows * cellSize) return;
+        int lowX = column(left), highX = column(right), lowY = row(bottom), highY = row(top);
+        query++;
+        for (int x = lowX; x <= highX; x++) {
+            for (int y = lowY; y <= highY; y++) {
+                int cell = x * rows + y;
+                for (int k = cellStart[cell]; k < cellStart[cell + 1]; k++) {
+                    int i = cellItems[k];
+                    if (found[i] == query) continue;
+                    found[i] = query;
+                    if (bounds[4 * i] <= right && bounds[4 * i + 2] >= left
+                            && bounds[4 * i + 1] <= top && bounds[4 * i + 3] >= bottom) {
+                        out.add(i);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the column of the grid an x coordinate falls in, clamped to the grid.
+     *
+     * @param x The x coordinate (in screen pixels).
+     *
+     * @return The column.
+     */
+    private int column(float x) {
+        return Math.max(0, Math.min(columns - 1, (int) ((x - originX) / cellSize)));
+    }
+
+    /**
+     * Returns the row of the grid a y coordinate falls in, clamped to the grid.
+     *
+     * @param y The y coordinate (in screen pixels).
+     *
+     * @return The row.
+     */
+    private int row(float y) {
+        return Math.max(0, Math.min(rows - 1, (int) ((y - originY) / cellSize)));
+    }
+}
@@ -110,6 +110,30 @@ public class FireballModel extends WheelObstacle implements ILight {
         super.update(dt);
     }
 
+    /**
+     * The simulated state of a fireball, including whether it is still active.
+     */
+    protected static class FireballState extends ObstacleState {
+        private boolean active;
+    }
+
+    @Override
+    protected ObstacleState createState() {
+        return new FireballState();
+    }
+
+    @Override
+    protected void writeState(ObstacleState state) {
+        super.writeState(state);
+        ((FireballState) state).active = active;
+    }
+
+    @Override
+    public void restoreState(ObstacleState state) {
+        super.restoreState(state);
+        active = ((FireballState) state).active;
+    }
+
     /**
      * Draws the physics object.
      *
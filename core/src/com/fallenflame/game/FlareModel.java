@@ -30,8 +30,8 @@ public class FlareModel extends WheelObstacle implements ILight {
     /** How long a flare can last, in milliseconds. */
     private int flareDuration;
 
-    /** Time when flare stuck to wall **/
-    private long stuckTime;
+    /** Simulated time, in milliseconds, since flare stuck to wall **/
+    private float stuckTime;
 
     /** Rate at which flare fades from wall **/
     private float fadeRate;
@@ -271,7 +271,7 @@ public class FlareModel extends WheelObstacle implements ILight {
     public void stopMovement() {
         body.setLinearVelocity(new Vector2(0,0));
         isStuck = true;
-        stuckTime = System.currentTimeMillis();
+        stuckTime = 0;
     }
 
     /**
@@ -282,6 +282,10 @@ public class FlareModel extends WheelObstacle implements ILight {
      * @param dt Number of seconds since last animation frame
      */
     public void update(float dt) {
+        // Burn time follows the simulation rather than the wall clock so replays match
+        if (isStuck) {
+            stuckTime += dt * 1000;
+        }
         super.update(dt);
     }
 
@@ -291,10 +295,39 @@ public class FlareModel extends WheelObstacle implements ILight {
      */
     public int timeToBurnout() {
         if(isStuck)
-            return Math.max(flareDuration - (int) (System.currentTimeMillis() - stuckTime), 0);
+            return Math.max(flareDuration - (int) stuckTime, 0);
         return -1;
     }
 
+    /**
+     * The simulated state of a flare, including how long it has left to burn.
+     */
+    protected static class FlareState extends ObstacleState {
+        private boolean isStuck;
+        private float stuckTime;
+    }
+
+    @Override
+    protected ObstacleState createState() {
+        return new FlareState();
+    }
+
+    @Override
+    protected void writeState(ObstacleState state) {
+        super.writeState(state);
+        FlareState s = (FlareState) state;
+        s.isStuck = isStuck;
+        s.stuckTime = stuckTime;
+    }
+
+    @Override
+    public void restoreState(ObstacleState state) {
+        super.restoreState(state);
+        FlareState s = (FlareState) state;
+        isStuck = s.isStuck;
+        stuckTime = s.stuckTime;
+    }
+
     /**
      * Draws the physics object.
      *
@@ -0,0 +1,211 @@
+package com.fallenflame.game;
+
+import com.badlogic.gdx.graphics.g2d.ParticleEffectPool.PooledEffect;
+
+import java.util.Arrays;
+
+/**
+ * {@code FogArena} stores the fog effects of every tile in flat arrays, with no objects per tile.
+ *
+ * A tile with fog owns a block of TILE_CAPACITY slots, and its effects are kept packed at the start of the block.
+ * Removing an effect moves the tile's last effect into its slot, so removal is O(1) and never disturbs a loop that
+ * walks the tile backwards. Blocks of tiles that lose all their fog go on a free list for reuse.
+ *
+ * Tiles with fog are also kept in a dense (unordered) list, so drawing and retiring fog only visit those tiles.
+ * Tiles that lose an effect are listed as well, so fog that burnt out can be topped up without checking every tile.
+ */
+public class FogArena {
+    /** Most fog effects a single tile can hold */
+    public static final int TILE_CAPACITY = 12;
+
+    /** Effect slots, in blocks of TILE_CAPACITY */
+    private PooledEffect[] slots;
+    /** Number of blocks ever handed out */
+    private int blocks;
+    /** Blocks that are free for reuse (a stack) */
+    private int[] freeBlocks;
+    /** Number of free blocks */
+    private int freeCount;
+
+    /** Block of each tile, or -1 if it has no fog */
+    private final int[] tileBlock;
+    /** Number of effects of each tile */
+    private final int[] tileCount;
+    /** Position of each tile in the active list, or -1 if it has no fog */
+    private final int[] activeIndex;
+    /** Tiles that have fog */
+    private final int[] activeTiles;
+    /** Number of tiles that have fog */
+    private int activeCount;
+    /** Tiles that lost an effect since the last clearDepleted() */
+    private final int[] depleted;
+    /** Whether each tile is in the depleted list */
+    private final boolean[] isDepleted;
+    /** Number of tiles that lost an effect */
+    private int depletedCount;
+
+    /**
+     * Creates an empty arena.
+     *
+     * @param tiles The number of tiles.
+     */
+    public FogArena(int tiles) {
+        tileBlock = new int[tiles];
+        tileCount = new int[tiles];
+        activeIndex = new int[tiles];
+        activeTiles = new int[tiles];
+        depleted = new int[tiles];
+        isDepleted = new boolean[tiles];
+        Arrays.fill(tileBlock, -1);
+        Arrays.fill(activeIndex, -1);
+        slots = new PooledEffect[16 * TILE_CAPACITY];
+        freeBlocks = new int[16];
+    }
+
+    /**
+     * Returns the number of tiles that have fog.
+     *
+     * @return The number of tiles that have fog.
+     */
+    public int getActiveCount() { return activeCount; }
+
+    /**
+     * Returns a tile that has fog.
+     *
+     * @param k The position of the tile in the active list (0 to getActiveCount() - 1).
+     *
+     * @return The index of the tile.
+     */
+    public int getActiveTile(int k) { return activeTiles[k]; }
+
+    /**
+     * Returns the number of effects of a tile.
+     *
+     * @param tile The index of the tile.
+     *
+     * @return The number of effects.
+     */
+    public int count(int tile) { return tileCount[tile]; }
+
+    /**
+     * Returns an effect of a tile.
+     *
+     * @param tile The index of the tile.
+     * @param i The index of the effect (0 to count(tile) - 1).
+     *
+     * @return The effect.
+     */
+    public PooledEffect get(int tile, int i) { return slots[tileBlock[tile] * TILE_CAPACITY + i]; }
+
+    /**
+     * Adds an effect to a tile.
+     *
+     * @param tile The index of the tile.
+     * @param effect The effect.
+     *
+     * @return Whether there was room for the effect.
+     */
+    public boolean add(int tile, PooledEffect effect) {
+        int count = tileCount[tile];
+        if (count >= TILE_CAPACITY) return false;
+        if (count == 0) activate(tile);
+        slots[tileBlock[tile] * TILE_CAPACITY + count] = effect;
+        tileCount[tile] = count + 1;
+        return true;
+    }
+
+    /**
+     * Frees an effect of a tile back to its pool. The tile's last effect takes its place, so walk a tile backwards
+     * when freeing. A tile that loses its last effect leaves the active list (its last tile takes its place).
+     *
+     * @param tile The index of the tile.
+     * @param i The index of the effect.
+     */
+    public void free(int tile, int i) {
+        int base = tileBlock[tile] * TILE_CAPACITY;
+        int last = --tileCount[tile];
+        slots[base + i].free();
+        slots[base + i] = slots[base + last];
+        slots[base + last] = null;
+        if (last == 0) deactivate(tile);
+        if (!isDepleted[tile]) {
+            isDepleted[tile] = true;
+            depleted[depletedCount++] = tile;
+        }
+    }
+
+    /**
+     * Returns the number of tiles that lost an effect since the last clearDepleted().
+     *
+     * @return The number of depleted tiles.
+     */
+    public int getDepletedCount() { return depletedCount; }
+
+    /**
+     * Returns a tile that lost an effect since the last clearDepleted().
+     *
+     * @param k The position of the tile in the depleted list (0 to getDepletedCount() - 1).
+     *
+     * @return The index of the tile.
+     */
+    public int getDepletedTile(int k) { return depleted[k]; }
+
+    /**
+     * Empties the list of tiles that lost an effect.
+     */
+    public void clearDepleted() {
+        for (int k = 0; k < depletedCount; k++) isDepleted[depleted[k]] = false;
+        depletedCount = 0;
+    }
+
+    /**
+     * Stops and frees every effect of a tile.
+     *
+     * @param tile The index of the tile.
+     */
+    public void freeAll(int tile) {
+        for (int i = tileCount[tile] - 1; i >= 0; i--) {
+            get(tile, i).setDuration(0);
+            free(tile, i);
+        }
+    }
+
+    /**
+     * Gives a tile a block and puts it in the active list.
+     *
+     * @param tile The index of the tile.
+     */
+    private void activate(int tile) {
+        int block;
+        if (freeCount > 0) {
+            block = freeBlocks[--freeCount];
+        } else {
+            block = blocks++;
+            if (blocks * TILE_CAPACITY > slots.length) {
+                slots = Arrays.copyOf(slots, slots.length * 2);
+            }
+        }
+        tileBlock[tile] = block;
+        activeIndex[tile] = activeCount;
+        activeTiles[activeCount++] = tile;
+    }
+
+    /**
+     * Returns the block of a tile to the free list and takes it out of the active list.
+     *
+     * @param tile The index of the tile.
+     */
+    private void deactivate(int tile) {
+        if (freeCount == freeBlocks.length) {
+            freeBlocks = Arrays.copyOf(freeBlocks, freeBlocks.length * 2);
+        }
+        freeBlocks[freeCount++] = tileBlock[tile];
+        tileBlock[tile] = -1;
+
+        int k = activeIndex[tile];
+        int moved = activeTiles[--activeCount];
+        activeTiles[k] = moved;
+        activeIndex[moved] = k;
+        activeIndex[tile] = -1;
+    }
+}
@@ -4,15 +4,25 @@ import com.badlogic.gdx.graphics.g2d.ParticleEffect;
 import com.badlogic.gdx.graphics.g2d.ParticleEffectPool;
 import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.math.Vector3;
-import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.IntArray;
 import com.fallenflame.game.enemies.EnemyModel;
-import java.util.Iterator;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 import java.util.logging.Logger;
 
 public class FogController {
-    private ParticleEffectPool fogPool;
-    private fogParticle[][] fog;
+    /** Default hard cap on the number of live fog effects */
+    public static final int DEFAULT_BUDGET = 3000;
+    /** Fraction of the budget only the dense fog around enemies may use */
+    private static final float ENEMY_RESERVE = 0.2f;
+    /** How much less dense the fog around enemies is at the edge of the view than at its center */
+    private static final float EDGE_THINNING = 0.5f;
+
+    private FogEffectPool fogPool;
+    /** The fog effects of every tile (tile x, y has index x * tileGridH + y) */
+    private FogArena fog;
     private LevelModel levelModel;
     private PlayerModel playerModel; //Needed for light radius
     private List<FlareModel> flareModels;//Needed for flare light radius
@@ -26,29 +36,149 @@ public class FogController {
     private final float NUM_FOG_AROUND_ENEMIES = 11.0f;
     private final float NUM_FOG_AROUND_SHOOTERS = 13.0f;
     private static Logger log = Logger.getLogger("FogController");
+    /** Number of tiles around the camera view that fog is kept up to date in */
+    private static final int FOG_MARGIN = 1;
+    /** Where the level is lit */
+    private IlluminationGrid illumination;
+    /** Seed of the jitter of fog around enemies (the level seed, so replays look the same) */
+    private long jitterSeed;
+    /** Hard cap on the number of live fog effects */
+    private int budget = DEFAULT_BUDGET;
+    /** Whether running out of budget has been reported */
+    private boolean budgetReported;
+    /** Offsets of the tiles in the camera window (packed as x << 16 | y), nearest the center first */
+    private int[] windowOrder = new int[0];
+    /** Size of the window windowOrder was computed for */
+    private int windowOrderW, windowOrderH;
+    /** The camera window (plus margin) of the current frame, in tiles. May reach outside the map. */
+    private int windowX, windowY, windowW, windowH;
+    /** The camera window of the last frame, in tiles */
+    private int lastWindowX, lastWindowY, lastWindowW, lastWindowH;
+    /** Whether tiles outside the window may still have fog fading out */
+    private boolean retiring;
+    /**
+     * Classification of each tile (STATE_* shifted left by 4, plus the number of particles wanted). It is kept between
+     * frames, and a tile is only reclassified when something it depends on changes.
+     */
+    private byte[] tileState;
+    /** Classification computed by the parallel stripes, compared against tileState before it is applied */
+    private byte[] classified;
+    /** Tiles whose particles may not match their classification */
+    private int[] pending;
+    /** Whether each tile is in the pending list */
+    private boolean[] isPending;
+    /** Number of pending tiles */
+    private int pendingCount;
+    /** Pool that classifies tiles. Shared with the rest of the JVM (the rendering thread waits on it) */
+    private final ForkJoinPool classifier = ForkJoinPool.commonPool();
+    /** Whether fog is drawn as a density texture instead of particles */
+    private boolean textureMode;
+    /** Draws the fog in texture mode (null in particle mode) */
+    private FogTexture fogTexture;
+    /** Density each window tile eases towards in texture mode (indexed (x - windowX) * windowH + y - windowY) */
+    private float[] densityTargets = new float[0];
+
+    /** Tile has a wall or tree, so never has fog */
+    private static final int STATE_WALL = 0;
+    /** Tile is lit, so its fog clears */
+    private static final int STATE_LIT = 1;
+    /** Tile has normal fog */
+    private static final int STATE_FOG = 2;
+    /** Tile has the dense fog around an enemy */
+    private static final int STATE_ENEMY = 3;
+    /** Tile has the lighter fog around a shooter or the ghost */
+    private static final int STATE_SHOOTER = 4;
+    /** Tile has not been classified yet */
+    private static final int STATE_UNKNOWN = 5;
+    /** Number of rows each classification task takes on */
+    private static final int STRIPE_ROWS = 8;
+    /** Windows with fewer tiles than this are classified on the calling thread */
+    private static final int PARALLEL_THRESHOLD = 1024;
+    /** Density of normal fog in texture mode (dense fog around enemies is 1) */
+    private static final float DENSITY_FOG = 0.5f;
 
     private final int[] DIRECTIONS = {1, -1};
     public void initialize(ParticleEffect fogTemplate, LevelModel lm, PlayerModel pm, List<FlareModel> fm, List<EnemyModel> em) {
         /*Using a pool doesn't actually help much, as if the number of models is higher than the max it just makes a new
         object. However, it has a slight performance help in terms of reusing objects. 100 is a random value, can be changed*/
-        fogPool = new ParticleEffectPool(fogTemplate, 50, 500);
+        fogPool = new FogEffectPool(fogTemplate, 50, budget);
         levelModel = lm;
         playerModel = pm;
         flareModels = fm;
         enemyModels = em;
+        illumination = lm.getIllumination();
         int[] n = levelModel.tileGridSize();
         tileGridW = n[0];
         tileGridH = n[1];
-        /*Using a 2D array of an array (called fogParticle) to keep track of which fog particles are complete and need
-        * new particles versus which ones do not. This fixes the initial issue of us creating 10,000 fog particles as
-        * fog particles were created whether or not the particle around that tile was complete*/
-        fog = new fogParticle[tileGridW][tileGridH];
+        /*Keeping the fog particles of each tile lets us tell which tiles are complete and need new particles versus
+        * which ones do not. This fixes the initial issue of us creating 10,000 fog particles as fog particles were
+        * created whether or not the particle around that tile was complete*/
+        fog = new FogArena(tileGridW * tileGridH);
+        tileState = new byte[tileGridW * tileGridH];
+        classified = new byte[tileGridW * tileGridH];
+        Arrays.fill(tileState, (byte) (STATE_UNKNOWN << 4));
+        pending = new int[tileGridW * tileGridH];
+        isPending = new boolean[tileGridW * tileGridH];
+        pendingCount = 0;
+        lastWindowW = lastWindowH = 0;
+        retiring = false;
         tileSize = levelModel.getTileSize();
+        if (textureMode) fogTexture = new FogTexture(tileGridW, tileGridH);
+    }
+
+    /**
+     * Chooses how fog is drawn. Must be called before initialize().
+     *
+     * Particle fog looks best, but costs an effect per fogged tile. Texture fog draws the same classification as a
+     * density texture with a single quad, which keeps the frame rate steady on large maps and weak machines.
+     *
+     * @param mode "texture" for texture fog, anything else for particle fog
+     */
+    public void setMode(String mode) {
+        textureMode = "texture".equalsIgnoreCase(mode);
+    }
+
+    /**
+     * Frees the textures of texture fog.
+     */
+    public void dispose() {
+        if (fogTexture != null) {
+            fogTexture.dispose();
+            fogTexture = null;
+        }
     }
 
+    /**
+     * Seeds the jitter of fog particles
+     *
+     * @param seed the level seed
+     */
+    public void setSeed(long seed) {
+        jitterSeed = seed;
+    }
+
+    /**
+     * Sets the hard cap on the number of live fog effects. Must be called before initialize().
+     *
+     * When fog runs out of budget, tiles nearest the view center keep their fog, and the last part of the budget is
+     * kept for the fog around enemies.
+     *
+     * @param budget the most fog effects that may be alive at once
+     */
+    public void setBudget(int budget) {
+        this.budget = Math.max(1, budget);
+    }
+
+    /** @return the number of fog effects being drawn or fading out */
+    public int getLiveCount() { return fogPool.live; }
+
+    /** @return the number of freed fog effects waiting in the pool */
+    public int getPooledCount() { return fogPool.getFree(); }
+
+    /** @return the number of fog effects ever created */
+    public int getAllocatedCount() { return fogPool.allocated; }
+
     public void updateFogAndDraw(GameCanvas canvas, Vector2 scale, float delta) {
-        // Cache values locally so we don't have to do expensive calculations each loop.
-        float px = playerModel.getX(), py = playerModel.getY(), lightRadius = playerModel.getLightRadius();
         // Camera pos:
         Vector3 cameraPos = canvas.getCamera().position;
         // These are the ratio to translate camera pos to tile pos.
@@ -58,128 +188,499 @@ public class FogController {
                 highX = (int) Math.floor((cameraPos.x + canvas.getWidth() / 2f) / ratioX),
                 lowY = (int) Math.floor((cameraPos.y - canvas.getHeight() / 2f) / ratioY),
                 highY = (int) Math.floor((cameraPos.y + canvas.getHeight() / 2f) / ratioY);
-        for (int x = 0; x < tileGridW; x++) {
-            for (int y = 0; y < tileGridH; y++) {
-                // If this tile is not in camera, clear its content.
-                if (x < lowX || x >= highX || y < lowY || y >= highY) {
-                    if (fog[x][y] != null) {
-
-                        for (ParticleEffectPool.PooledEffect effect : fog[x][y].fogParticles) {
-                            effect.setDuration(0);
-                            if (effect.isComplete()) {
-                                effect.free();
-                                fog[x][y].fogParticles.removeValue(effect, true);
-                                //This will just remove it from drawing again, it will not automatically remove particles
-                            }
-                        }
-                    }
-                    continue;
-                }
-                //To prevent drawing on tiles with the player or a wall as well as if its within the light radius
-                if (levelModel.hasWall(x, y) || levelModel.hasTree(x, y)) continue;
-
-                //0.25 accounts for the aligning of the light to show the player's face instead of just the feet.
-                boolean withinLight = (Math.pow((Math.pow((x * tileSize) - (playerModel.getX()), 2) +
-                        Math.pow((y * tileSize) - (playerModel.getY() + 0.25), 2)), 0.5))
-                        <= playerModel.getLightRadius()-(playerModel.getLightRadius()/4);
-
-                Array<ParticleEffectPool.PooledEffect> fogArr;
-                if (withinLight || levelModel.hasPlayer(x, y)) {
-                    if (fog[x][y] != null) {
-                        fogArr = fog[x][y].fogParticles;
-                        for (ParticleEffectPool.PooledEffect effect : fogArr) {
-                            effect.setDuration(0);
-                            effect.free();
-                            fogArr.removeValue(effect, true);
-                        }
-                    }
-                } else {
-                    Iterator<FlareModel> iterator = flareModels.iterator();
-                    while (iterator.hasNext() && !withinLight) {
-                        FlareModel flare = iterator.next();
-                        withinLight = (Math.pow((Math.pow((x * tileSize) - (flare.getX()), 2) +
-                                Math.pow((y * tileSize) - (flare.getY()), 2)), 0.5))
-                                <= flare.getLightRadius()- flare.getLightRadius()/4;
-                    }
-                    if (withinLight) {
-                        if (fog[x][y] != null) {
-                            fogArr = fog[x][y].fogParticles;
-                            for (ParticleEffectPool.PooledEffect effect : fogArr) {
-                                effect.setDuration(0);
-                                effect.free();
-                                fogArr.removeValue(effect, true);
-                            }
-                        }
-                    } else {
-                        Iterator<EnemyModel> enemyIterator = enemyModels.iterator();
-                        while (enemyIterator.hasNext() && !withinLight) {
-                            EnemyModel enemy = enemyIterator.next();
-                            withinLight = (enemy.isActivated()) && (levelModel.screenToTile(enemy.getX()) == x) &&
-                                    (levelModel.screenToTile(enemy.getY()) == y);
-                        }
-                        if (withinLight) {
-                            if (fog[x][y] != null) {
-                                fogArr = fog[x][y].fogParticles;
-                                for (ParticleEffectPool.PooledEffect effect : fogArr) {
-                                    effect.setDuration(0);
-                                    effect.free();
-                                    fogArr.removeValue(effect, true);
-                                    //This will just remove it from drawing again, it will not automatically remove particles
-                                }
-                            }
-                        } else {
-                            if (fog[x][y] == null) {
-                                fog[x][y] = new fogParticle();
-                            }
-                            fogArr = fog[x][y].fogParticles;
-                        if ((fog[x][y].enemies != null || fogArr.size > NUM_FOG_NORMAL)  && !levelModel.hasEnemy(x, y)) {
-                                for (ParticleEffectPool.PooledEffect effect : fogArr) {
-                                    effect.setDuration(0);
-                                    effect.free();
-                                    fogArr.removeValue(effect, true);
-                                }
-                                fog[x][y].enemies = null;
-                                ParticleEffectPool.PooledEffect effect = fogPool.obtain();
-                                effect.reset();
-                            effect.setPosition((levelModel.tileToScreen(x) * scale.x), levelModel.tileToScreen(y) * scale.y);
-                            fog[x][y].fogParticles.add(effect);
-                            }
-                            /*Only make a new fog particle if we do not have enough particles in the array for that tile*/
-                            if (fogArr.size < NUM_FOG_NORMAL || levelModel.hasEnemy(x, y) && fogArr.size < ( levelModel.hasLessFog(x,y) ? NUM_FOG_SHOOTER : NUM_FOG_ENEMIES)) {
-                                for (int i = 0; i < ((levelModel.hasEnemy(x, y) ? levelModel.hasLessFog(x, y) ? NUM_FOG_SHOOTER : NUM_FOG_ENEMIES : NUM_FOG_NORMAL)); i++) {
-                                    ParticleEffectPool.PooledEffect effect = fogPool.obtain();
-                                    effect.reset();
-                                    float incX = levelModel.hasEnemy(x, y) ? (float) ((Math.random() - 0.5) * (levelModel.hasLessFog(x, y) ? NUM_FOG_AROUND_SHOOTERS : NUM_FOG_AROUND_ENEMIES)) : 0;
-                                    float incY = levelModel.hasEnemy(x, y) ? (float) ((Math.random() - 0.5) * (levelModel.hasLessFog(x, y) ? NUM_FOG_AROUND_SHOOTERS : NUM_FOG_AROUND_ENEMIES)) : 0;
-                                    float randomVal = levelModel.hasEnemy(x, y) ? 6.0f : 1.0f;
-                                    float randomX = levelModel.hasEnemy(x, y) ? (float) (((Math.random() - 0.5f)*randomVal))*tileSize : 0;
-                                    float randomY = levelModel.hasEnemy(x, y) ? (float) (((Math.random() - 0.5f)*randomVal))*tileSize : 0;
-                                    effect.setPosition((levelModel.tileToScreen((int) ((x + incX))) + randomX) * scale.x, levelModel.tileToScreen((int) ((y+incY + randomY))) * scale.y);
-                                    fog[x][y].fogParticles.add(effect);
-                                }
-                            }
-                        }
-                    }
-                }
-            }
+        // Only tiles in the camera window (plus a margin) are updated, so the cost does not depend on the map size.
+        windowX = lowX - FOG_MARGIN;
+        windowY = lowY - FOG_MARGIN;
+        windowW = highX + FOG_MARGIN - windowX;
+        windowH = highY + FOG_MARGIN - windowY;
+        boolean moved = windowX != lastWindowX || windowY != lastWindowY
+                || windowW != lastWindowW || windowH != lastWindowH;
+        if (moved || retiring) {
+            retiring = retireTiles(windowX, windowX + windowW, windowY, windowY + windowH);
         }
+
+        // First phase: reclassify the tiles whose inputs changed (the light, player and enemy stamps that moved since
+        // the last frame, and the tiles the window just reached). Nothing is classified while nothing moves.
+        TileChanges lights = illumination.getChanges(), occupancy = levelModel.getChanges();
+        // Tiles the window just reached are always reapplied, since their fog may have faded out while they were away.
+        if (moved) revealWindow();
+        if (lights.isAll() || occupancy.isAll()) {
+            reclassify(windowX, windowY, windowX + windowW - 1, windowY + windowH - 1, false);
+        } else {
+            reclassifyRegions(lights.getRegions());
+            reclassifyRegions(occupancy.getRegions());
+        }
+        lights.clear();
+        occupancy.clear();
+        lastWindowX = windowX;
+        lastWindowY = windowY;
+        lastWindowW = windowW;
+        lastWindowH = windowH;
+        // Fog that burnt out since the last frame is topped up
+        for (int k = 0; k < fog.getDepletedCount(); k++) markPending(fog.getDepletedTile(k));
+        fog.clearDepleted();
+
+        if (fogTexture != null) {
+            clearPending();
+            applyDensities(delta);
+            fogTexture.draw(canvas, windowX, windowY, windowW, windowH, tileSize, scale.x, scale.y, delta);
+            return;
+        }
+
+        // Second phase: spawn and free particles of the tiles whose state changed.
+        applyPending(scale);
+        fog.clearDepleted();
         canvas.begin();
         canvas.drawFog(fog, delta);
         canvas.end();
     }
-/**Inner class to represent the fog on one tile
- *fogparticles: An Array of Pooled Effects. Need to use Array as this list's length will vary as things are added/removed
- * */
-    protected class fogParticle {
-        protected Array<ParticleEffectPool.PooledEffect> fogParticles;
-        protected EnemyModel enemies;
 
-        /**Creates a new fogParticle with an empty array*/
-        public fogParticle(){
-            fogParticles = new Array<>();
-            enemies = null;
+    /**
+     * Reclassifies the window tiles of a rectangle, and marks the ones whose state changed as pending.
+     *
+     * Large rectangles are classified in parallel row stripes into a scratch array, then compared against the old
+     * states on the calling thread.
+     *
+     * @param x0 first column (may be outside the window)
+     * @param y0 first row (may be outside the window)
+     * @param x1 last column, inclusive
+     * @param y1 last row, inclusive
+     * @param force whether to mark every tile as pending, changed or not
+     */
+    private void reclassify(int x0, int y0, int x1, int y1, boolean force) {
+        x0 = Math.max(x0, Math.max(0, windowX));
+        y0 = Math.max(y0, Math.max(0, windowY));
+        x1 = Math.min(x1, Math.min(tileGridW, windowX + windowW) - 1);
+        y1 = Math.min(y1, Math.min(tileGridH, windowY + windowH) - 1);
+        if (x0 > x1 || y0 > y1) return;
+        boolean parallel = (x1 - x0 + 1) * (y1 - y0 + 1) >= PARALLEL_THRESHOLD;
+        if (parallel) classifier.invoke(new ClassifyTask(x0, x1 + 1, y0, y1 + 1));
+        for (int x = x0; x <= x1; x++) {
+            for (int y = y0; y <= y1; y++) {
+                int tile = x * tileGridH + y;
+                byte state = parallel ? classified[tile] : classify(x, y);
+                if (force || state != tileState[tile]) {
+                    tileState[tile] = state;
+                    markPending(tile);
+                }
+            }
         }
+    }
 
+    /**
+     * Reclassifies the tiles of changed regions.
+     *
+     * @param regions changed regions, as inclusive x0, y0, x1, y1
+     */
+    private void reclassifyRegions(IntArray regions) {
+        for (int i = 0; i + 3 < regions.size; i += 4) {
+            reclassify(regions.get(i), regions.get(i + 1), regions.get(i + 2), regions.get(i + 3), false);
+        }
+    }
+
+    /**
+     * Reclassifies what a move of the window changes: the tiles the window just reached, and the tiles of enemies
+     * (whose fog thins out towards the edge of the window).
+     */
+    private void revealWindow() {
+        int x0 = windowX, x1 = windowX + windowW, y0 = windowY, y1 = windowY + windowH;
+        int oldX0 = lastWindowX, oldX1 = lastWindowX + lastWindowW;
+        int oldY0 = lastWindowY, oldY1 = lastWindowY + lastWindowH;
+        // Columns left and right of the last window
+        reclassify(x0, y0, Math.min(x1, oldX0) - 1, y1 - 1, true);
+        reclassify(Math.max(x0, oldX1), y0, x1 - 1, y1 - 1, true);
+        // Rows below and above the last window, in the columns both windows share
+        int sharedX0 = Math.max(x0, oldX0), sharedX1 = Math.min(x1, oldX1) - 1;
+        reclassify(sharedX0, y0, sharedX1, Math.min(y1, oldY0) - 1, true);
+        reclassify(sharedX0, Math.max(y0, oldY1), sharedX1, y1 - 1, true);
+        for (int k = 0; k < enemyModels.size(); k++) {
+            EnemyModel enemy = enemyModels.get(k);
+            float r = enemy.getRadius();
+            reclassify(levelModel.screenToTile(enemy.getX() - r), levelModel.screenToTile(enemy.getY() - r),
+                    levelModel.screenToTile(enemy.getX() + r), levelModel.screenToTile(enemy.getY() + r), false);
+        }
+    }
+
+    /**
+     * Adds a tile to the pending list, unless it is already there.
+     *
+     * @param tile index of the tile
+     */
+    private void markPending(int tile) {
+        if (isPending[tile]) return;
+        isPending[tile] = true;
+        pending[pendingCount++] = tile;
+    }
+
+    /**
+     * Empties the pending list.
+     */
+    private void clearPending() {
+        for (int k = 0; k < pendingCount; k++) isPending[pending[k]] = false;
+        pendingCount = 0;
+    }
+
+    /**
+     * Spawns and frees the particles of the pending tiles in the window. Tiles that ran out of budget stay pending.
+     *
+     * @param scale drawing scale
+     */
+    private void applyPending(Vector2 scale) {
+        int count = pendingCount;
+        pendingCount = 0;
+        if (count > windowW * windowH / 4) {
+            // Many tiles (e.g. the camera jumped): go nearest the view center first, so they get fog first if the
+            // budget runs out.
+            for (int k = 0; k < count; k++) {
+                int tile = pending[k];
+                if (!inWindow(tile / tileGridH, tile % tileGridH)) isPending[tile] = false;
+            }
+            int[] order = getWindowOrder(windowW, windowH);
+            for (int k = 0; k < order.length; k++) {
+                int x = windowX + (order[k] >> 16), y = windowY + (order[k] & 0xFFFF);
+                if (x < 0 || y < 0 || x >= tileGridW || y >= tileGridH) continue;
+                int tile = x * tileGridH + y;
+                if (!isPending[tile]) continue;
+                isPending[tile] = false;
+                if (!applyState(x, y, scale)) markPending(tile);
+            }
+            return;
+        }
+        // Tiles that stay pending are added back at or before k, so the list can be walked in place.
+        for (int k = 0; k < count; k++) {
+            int tile = pending[k];
+            isPending[tile] = false;
+            int x = tile / tileGridH, y = tile % tileGridH;
+            if (inWindow(x, y) && !applyState(x, y, scale)) markPending(tile);
+        }
+    }
+
+    /**
+     * Returns whether a tile is in the camera window.
+     *
+     * @param x tile x-coor
+     * @param y tile y-coor
+     * @return whether the tile is in the window
+     */
+    private boolean inWindow(int x, int y) {
+        return x >= windowX && x < windowX + windowW && y >= windowY && y < windowY + windowH;
+    }
+
+    /**
+     * Classifies the tiles of a rectangle into the scratch array. This only reads the level model and the
+     * illumination grid, and each tile is written by one thread, so different rows can be classified on different
+     * threads.
+     *
+     * @param firstColumn first column to classify
+     * @param lastColumn column after the last to classify
+     * @param firstRow first row to classify
+     * @param lastRow row after the last to classify
+     */
+    private void classifyRect(int firstColumn, int lastColumn, int firstRow, int lastRow) {
+        for (int y = firstRow; y < lastRow; y++) {
+            for (int x = firstColumn; x < lastColumn; x++) {
+                classified[x * tileGridH + y] = classify(x, y);
+            }
+        }
+    }
+
+    /**
+     * Decides what fog a tile should have.
+     *
+     * @param x tile x-coor
+     * @param y tile y-coor
+     * @return the kind of fog (STATE_* shifted left by 4) and the number of particles it wants
+     */
+    private byte classify(int x, int y) {
+        //To prevent drawing on tiles with the player or a wall as well as if its within the light radius
+        if (levelModel.hasWall(x, y) || levelModel.hasTree(x, y)) return STATE_WALL << 4;
+
+        // Fog thins out towards the edge of a light, so it only clears well inside it.
+        if (levelModel.hasPlayer(x, y) || illumination.isBright(x, y)) return STATE_LIT << 4;
+
+        if (!levelModel.hasEnemy(x, y)) return (byte) (STATE_FOG << 4 | NUM_FOG_NORMAL);
+
+        /*Enemy fog is less dense towards the edge of the view (edge is 0 at its center, 1 at its edge)*/
+        float edge = Math.max(Math.abs(2f * (x - windowX) / windowW - 1), Math.abs(2f * (y - windowY) / windowH - 1));
+        boolean lessFog = levelModel.hasLessFog(x, y);
+        int numFog = thinOut(lessFog ? NUM_FOG_SHOOTER : NUM_FOG_ENEMIES, edge);
+        return (byte) ((lessFog ? STATE_SHOOTER : STATE_ENEMY) << 4 | numFog);
     }
-}
 
+    /**
+     * Spawns or frees the particles of a tile to match its classification.
+     *
+     * @param x tile x-coor
+     * @param y tile y-coor
+     * @param scale drawing scale
+     * @return false if the tile ran out of budget before it got all its particles
+     */
+    private boolean applyState(int x, int y, Vector2 scale) {
+        int tile = x * tileGridH + y;
+        int kind = tileState[tile] >> 4, numFog = tileState[tile] & 0xF;
+        int count = fog.count(tile);
+        if (kind == STATE_WALL) return true;
+        if (kind == STATE_LIT) {
+            if (count > 0) fog.freeAll(tile);
+            return true;
+        }
+        boolean hasEnemy = kind != STATE_FOG;
+        /*An enemy left this tile, so go back to normal fog*/
+        if (count > NUM_FOG_NORMAL && !hasEnemy) {
+            fog.freeAll(tile);
+            ParticleEffectPool.PooledEffect effect = fogPool.obtain();
+            effect.reset();
+            effect.setPosition((levelModel.tileToScreen(x) * scale.x), levelModel.tileToScreen(y) * scale.y);
+            addEffect(tile, effect);
+        }
+        /*Only make new fog particles if we do not have enough particles for that tile*/
+        float around = kind == STATE_SHOOTER ? NUM_FOG_AROUND_SHOOTERS : NUM_FOG_AROUND_ENEMIES;
+        for (int i = fog.count(tile); i < numFog; i++) {
+            if (!canSpawn(hasEnemy)) return false;
+            ParticleEffectPool.PooledEffect effect = fogPool.obtain();
+            effect.reset();
+            float incX = hasEnemy ? jitter(tile, i, 0) * around : 0;
+            float incY = hasEnemy ? jitter(tile, i, 1) * around : 0;
+            float randomVal = hasEnemy ? 6.0f : 1.0f;
+            float randomX = hasEnemy ? jitter(tile, i, 2) * randomVal * tileSize : 0;
+            float randomY = hasEnemy ? jitter(tile, i, 3) * randomVal * tileSize : 0;
+            effect.setPosition((levelModel.tileToScreen((int) ((x + incX))) + randomX) * scale.x, levelModel.tileToScreen((int) ((y+incY + randomY))) * scale.y);
+            if (!addEffect(tile, effect)) break;
+        }
+        return true;
+    }
+
+    /**
+     * Adds an effect to a tile, or returns it to the pool if the tile is full.
+     *
+     * @param tile index of the tile
+     * @param effect the effect, fresh from the pool
+     * @return false if the tile was full (the effect has been freed)
+     */
+    private boolean addEffect(int tile, ParticleEffectPool.PooledEffect effect) {
+        if (fog.add(tile, effect)) return true;
+        fogPool.free(effect);
+        return false;
+    }
+
+    /**
+     * Returns the jitter of a fog particle, from a hash of the level seed, the tile, the particle and the channel.
+     *
+     * A particle lands in the same place every time its tile is refilled and in every replay, and no generator is
+     * shared between tiles, so this is safe to call from any thread.
+     *
+     * @param tile index of the tile
+     * @param particle index of the particle in the tile (below 64)
+     * @param channel which value of the particle (0 to 3)
+     * @return a value in [-0.5, 0.5)
+     */
+    private float jitter(int tile, int particle, int channel) {
+        // SplitMix64 finalizer
+        long h = jitterSeed + ((long) tile << 8 | particle << 2 | channel) * 0x9E3779B97F4A7C15L;
+        h = (h ^ (h >>> 30)) * 0xBF58476D1CE4E5B9L;
+        h = (h ^ (h >>> 27)) * 0x94D049BB133111EBL;
+        h ^= h >>> 31;
+        return (h >>> 40) / (float) (1 << 24) - 0.5f;
+    }
+
+    /**
+     * Eases the fog density of every window tile towards what its classification calls for, in texture mode.
+     *
+     * Enemies thicken the fog in a disc around them, as far as their jittered particles would reach.
+     *
+     * @param delta time since the last frame, in seconds
+     */
+    private void applyDensities(float delta) {
+        if (densityTargets.length < windowW * windowH) densityTargets = new float[windowW * windowH];
+        int firstColumn = Math.max(0, windowX), lastColumn = Math.min(tileGridW, windowX + windowW);
+        int firstRow = Math.max(0, windowY), lastRow = Math.min(tileGridH, windowY + windowH);
+        for (int x = firstColumn; x < lastColumn; x++) {
+            for (int y = firstRow; y < lastRow; y++) {
+                int kind = tileState[x * tileGridH + y] >> 4;
+                boolean clear = kind == STATE_WALL || kind == STATE_LIT;
+                densityTargets[(x - windowX) * windowH + y - windowY] = clear ? 0 : DENSITY_FOG;
+            }
+        }
+        for (int x = firstColumn; x < lastColumn; x++) {
+            for (int y = firstRow; y < lastRow; y++) {
+                int state = tileState[x * tileGridH + y], kind = state >> 4;
+                if (kind != STATE_ENEMY && kind != STATE_SHOOTER) continue;
+                float around = kind == STATE_SHOOTER ? NUM_FOG_AROUND_SHOOTERS : NUM_FOG_AROUND_ENEMIES;
+                float peak = DENSITY_FOG + (1 - DENSITY_FOG) * Math.min(1f, (float) (state & 0xF) / NUM_FOG_ENEMIES);
+                spreadDensity(x, y, around / 2, peak);
+            }
+        }
+        for (int x = firstColumn; x < lastColumn; x++) {
+            for (int y = firstRow; y < lastRow; y++) {
+                fogTexture.setTarget(x * tileGridH + y, densityTargets[(x - windowX) * windowH + y - windowY], delta);
+            }
+        }
+    }
+
+    /**
+     * Raises the target density of the fogged window tiles in a disc, from peak at its center to normal at its edge.
+     *
+     * @param cx tile x-coor of the center
+     * @param cy tile y-coor of the center
+     * @param radius radius of the disc in tiles
+     * @param peak density at the center
+     */
+    private void spreadDensity(int cx, int cy, float radius, float peak) {
+        int reach = (int) radius;
+        int lowX = Math.max(Math.max(0, windowX), cx - reach);
+        int highX = Math.min(Math.min(tileGridW, windowX + windowW) - 1, cx + reach);
+        int lowY = Math.max(Math.max(0, windowY), cy - reach);
+        int highY = Math.min(Math.min(tileGridH, windowY + windowH) - 1, cy + reach);
+        for (int x = lowX; x <= highX; x++) {
+            for (int y = lowY; y <= highY; y++) {
+                int kind = tileState[x * tileGridH + y] >> 4;
+                if (kind == STATE_WALL || kind == STATE_LIT) continue;
+                float d = (float) Math.sqrt((x - cx) * (x - cx) + (y - cy) * (y - cy)) / radius;
+                if (d >= 1) continue;
+                int i = (x - windowX) * windowH + y - windowY;
+                densityTargets[i] = Math.max(densityTargets[i], DENSITY_FOG + (peak - DENSITY_FOG) * (1 - d));
+            }
+        }
+    }
+
+    /**
+     * Classifies the tiles of a rectangle in stripes of rows, splitting it in half until it is small enough.
+     */
+    private class ClassifyTask extends RecursiveAction {
+        private final int firstColumn, lastColumn, firstRow, lastRow;
+
+        ClassifyTask(int firstColumn, int lastColumn, int firstRow, int lastRow) {
+            this.firstColumn = firstColumn;
+            this.lastColumn = lastColumn;
+            this.firstRow = firstRow;
+            this.lastRow = lastRow;
+        }
+
+        @Override
+        protected void compute() {
+            if (lastRow - firstRow <= STRIPE_ROWS) {
+                classifyRect(firstColumn, lastColumn, firstRow, lastRow);
+                return;
+            }
+            int middle = (firstRow + lastRow) >>> 1;
+            invokeAll(new ClassifyTask(firstColumn, lastColumn, firstRow, middle),
+                    new ClassifyTask(firstColumn, lastColumn, middle, lastRow));
+        }
+    }
+
+    /**
+     * Returns whether another fog effect may be created without going over budget.
+     *
+     * @param nearEnemy whether the effect is part of the fog around an enemy (which may use the reserve)
+     * @return whether the effect may be created
+     */
+    private boolean canSpawn(boolean nearEnemy) {
+        int limit = nearEnemy ? budget : (int) (budget * (1 - ENEMY_RESERVE));
+        if (fogPool.live < limit) return true;
+        if (!budgetReported) {
+            budgetReported = true;
+            log.warning("Fog budget of " + budget + " effects reached (" + fogPool.allocated + " allocated)");
+        }
+        return false;
+    }
+
+    /**
+     * Thins out fog towards the edge of the view.
+     *
+     * @param count number of effects at the view center
+     * @param edge 0 at the view center, 1 at its edge
+     * @return number of effects at the given distance from the center (at least one)
+     */
+    private static int thinOut(int count, float edge) {
+        return Math.max(1, Math.round(count * (1 - EDGE_THINNING * edge)));
+    }
+
+    /**
+     * Returns the offsets of the tiles in a window, sorted by distance from its center.
+     *
+     * The order only depends on the size of the window, so it is cached until the size changes.
+     *
+     * @param w width of the window in tiles
+     * @param h height of the window in tiles
+     * @return offsets packed as x << 16 | y, nearest the center first
+     */
+    private int[] getWindowOrder(int w, int h) {
+        if (w == windowOrderW && h == windowOrderH) return windowOrder;
+        Integer[] offsets = new Integer[Math.max(0, w * h)];
+        for (int x = 0; x < w; x++) {
+            for (int y = 0; y < h; y++) {
+                offsets[x * h + y] = x << 16 | y;
+            }
+        }
+        final float cx = (w - 1) / 2f, cy = (h - 1) / 2f;
+        Arrays.sort(offsets, (a, b) -> {
+            float ax = (a >> 16) - cx, ay = (a & 0xFFFF) - cy;
+            float bx = (b >> 16) - cx, by = (b & 0xFFFF) - cy;
+            return Float.compare(ax * ax + ay * ay, bx * bx + by * by);
+        });
+        windowOrder = new int[offsets.length];
+        for (int i = 0; i < offsets.length; i++) windowOrder[i] = offsets[i];
+        windowOrderW = w;
+        windowOrderH = h;
+        return windowOrder;
+    }
+
+    /**
+     * Fades out the fog of active tiles outside the camera window, and forgets tiles whose fog is gone.
+     *
+     * @param lowX First column of the window.
+     * @param highX Column after the last of the window.
+     * @param lowY First row of the window.
+     * @param highY Row after the last of the window.
+     *
+     * @return Whether tiles outside the window still have fog fading out.
+     */
+    private boolean retireTiles(int lowX, int highX, int lowY, int highY) {
+        boolean remaining = false;
+        // Walk backwards: tiles and effects that are freed are replaced by ones already visited.
+        for (int k = fog.getActiveCount() - 1; k >= 0; k--) {
+            int tile = fog.getActiveTile(k);
+            int x = tile / tileGridH, y = tile % tileGridH;
+            if (x >= lowX && x < highX && y >= lowY && y < highY) continue;
+            for (int i = fog.count(tile) - 1; i >= 0; i--) {
+                ParticleEffectPool.PooledEffect effect = fog.get(tile, i);
+                effect.setDuration(0);
+                if (effect.isComplete()) {
+                    //This will just remove it from drawing again, it will not automatically remove particles
+                    fog.free(tile, i);
+                }
+            }
+            remaining |= fog.count(tile) > 0;
+        }
+        return remaining;
+    }
+/**Pool of fog effects that keeps count of how many are alive and how many were ever created*/
+    private static class FogEffectPool extends ParticleEffectPool {
+        /**Number of effects obtained and not yet freed*/
+        private int live;
+        /**Number of effects ever created*/
+        private int allocated;
+
+        public FogEffectPool(ParticleEffect effect, int initialCapacity, int max) {
+            super(effect, initialCapacity, max);
+        }
+
+        @Override
+        protected PooledEffect newObject() {
+            allocated++;
+            return super.newObject();
+        }
+
+        @Override
+        public PooledEffect obtain() {
+            live++;
+            return super.obtain();
+        }
+
+        @Override
+        public void free(PooledEffect effect) {
+            live--;
+            super.free(effect);
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package com.fallenflame.game;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.glutils.ShaderProgram;
+import com.badlogic.gdx.math.MathUtils;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * {@code FogTexture} draws fog as a density field instead of particles.
+ *
+ * Each tile has a fog density that eases towards the density its classification calls for. Every frame, the densities
+ * of the camera window are written into a small single-channel texture (one texel per tile) and drawn as one quad.
+ * A shader multiplies the (linearly filtered) density by two layers of scrolling noise, so the fog still drifts.
+ *
+ * This costs one texture upload and one draw call per frame, however many tiles are fogged.
+ */
+public class FogTexture {
+    /** Color of the fog */
+    private static final Color FOG_COLOR = new Color(0.72f, 0.72f, 0.78f, 0.9f);
+    /** Size (in texels) of the noise texture */
+    private static final int NOISE_SIZE = 64;
+    /** Number of noise cells across the noise texture */
+    private static final int NOISE_CELLS = 8;
+    /** Number of tiles covered by the noise texture */
+    private static final float NOISE_TILES = 24f;
+    /** Speed (in tiles per second) the noise scrolls at */
+    private static final float NOISE_SPEED = 0.35f;
+    /** Fraction of the way to its target a tile's density moves in a second */
+    private static final float FADE_RATE = 4f;
+    /** Density of a tile that has not been seen yet (it jumps straight to its target) */
+    private static final float UNSEEN = -1f;
+
+    private static final String VERTEX_SHADER =
+            "attribute vec4 " + ShaderProgram.POSITION_ATTRIBUTE + ";\n"
+            + "attribute vec4 " + ShaderProgram.COLOR_ATTRIBUTE + ";\n"
+            + "attribute vec2 " + ShaderProgram.TEXCOORD_ATTRIBUTE + "0;\n"
+            + "uniform mat4 u_projTrans;\n"
+            + "varying vec4 v_color;\n"
+            + "varying vec2 v_texCoords;\n"
+            + "void main() {\n"
+            + "    v_color = " + ShaderProgram.COLOR_ATTRIBUTE + ";\n"
+            + "    v_color.a = v_color.a * (255.0/254.0);\n"
+            + "    v_texCoords = " + ShaderProgram.TEXCOORD_ATTRIBUTE + "0;\n"
+            + "    gl_Position = u_projTrans * " + ShaderProgram.POSITION_ATTRIBUTE + ";\n"
+            + "}\n";
+
+    private static final String FRAGMENT_SHADER =
+            "#ifdef GL_ES\n"
+            + "precision mediump float;\n"
+            + "#endif\n"
+            + "varying vec4 v_color;\n"
+            + "varying vec2 v_texCoords;\n"
+            + "uniform sampler2D u_texture;\n"
+            + "uniform sampler2D u_noise;\n"
+            // x, y, width and height of the window in tiles
+            + "uniform vec4 u_window;\n"
+            + "uniform vec2 u_scroll;\n"
+            + "uniform float u_noiseScale;\n"
+            + "void main() {\n"
+            + "    float density = texture2D(u_texture, v_texCoords).a;\n"
+            + "    vec2 tile = u_window.xy + vec2(v_texCoords.x, 1.0 - v_texCoords.y) * u_window.zw;\n"
+            + "    float noise = 0.6 * texture2D(u_noise, tile * u_noiseScale + u_scroll).a\n"
+            + "            + 0.4 * texture2D(u_noise, tile * u_noiseScale * 2.3 - u_scroll * 0.7).a;\n"
+            + "    gl_FragColor = vec4(v_color.rgb, v_color.a * clamp(density * (0.4 + noise), 0.0, 1.0));\n"
+            + "}\n";
+
+    /** Density of every tile of the map */
+    private final float[] density;
+    /** Height of the map in tiles */
+    private final int gridH;
+    /** One texel per tile of the window */
+    private Pixmap pixmap;
+    /** Texture the window densities are uploaded to */
+    private Texture densityTexture;
+    /** Tiling noise that makes the fog drift */
+    private final Texture noiseTexture;
+    /** Shader that combines density and noise */
+    private final ShaderProgram shader;
+    /** Time the fog has been drifting for, in seconds */
+    private float time;
+
+    /**
+     * Creates a fog texture for a map.
+     *
+     * @param gridW The width of the map in tiles.
+     * @param gridH The height of the map in tiles.
+     */
+    public FogTexture(int gridW, int gridH) {
+        this.gridH = gridH;
+        density = new float[gridW * gridH];
+        Arrays.fill(density, UNSEEN);
+        noiseTexture = createNoise();
+        shader = new ShaderProgram(VERTEX_SHADER, FRAGMENT_SHADER);
+        if (!shader.isCompiled()) {
+            Gdx.app.error("FogTexture", "Fog shader failed to compile: " + shader.getLog());
+        }
+    }
+
+    /**
+     * Eases the density of a tile towards its target.
+     *
+     * @param tile The index of the tile (x * gridH + y).
+     * @param target The density the tile should have (0 to 1).
+     * @param delta The time since the last frame, in seconds.
+     */
+    public void setTarget(int tile, float target, float delta) {
+        float d = density[tile];
+        density[tile] = d == UNSEEN ? target : d + (target - d) * Math.min(1, delta * FADE_RATE);
+    }
+
+    /**
+     * Uploads the densities of a window and draws the fog over it.
+     *
+     * @param canvas The drawing context (not yet begun).
+     * @param windowX The first column of the window (may be outside the map).
+     * @param windowY The first row of the window (may be outside the map).
+     * @param windowW The width of the window in tiles.
+     * @param windowH The height of the window in tiles.
+     * @param tileSize The size of a tile in world units.
+     * @param scaleX The drawing scale (x).
+     * @param scaleY The drawing scale (y).
+     * @param delta The time since the last frame, in seconds.
+     */
+    public void draw(GameCanvas canvas, int windowX, int windowY, int windowW, int windowH,
+                     float tileSize, float scaleX, float scaleY, float delta) {
+        time += delta;
+        if (pixmap == null || pixmap.getWidth() != windowW || pixmap.getHeight() != windowH) {
+            if (pixmap != null) pixmap.dispose();
+            if (densityTexture != null) densityTexture.dispose();
+            pixmap = new Pixmap(windowW, windowH, Pixmap.Format.Alpha);
+            densityTexture = new Texture(pixmap);
+            densityTexture.setFilter(Texture.TextureFilter.Linear, Texture.TextureFilter.Linear);
+        }
+
+        // Row 0 of the pixmap is the top of the window.
+        ByteBuffer pixels = pixmap.getPixels();
+        int gridW = density.length / gridH;
+        for (int oy = 0; oy < windowH; oy++) {
+            int y = windowY + windowH - 1 - oy;
+            for (int ox = 0; ox < windowW; ox++) {
+                int x = windowX + ox;
+                float d = x < 0 || y < 0 || x >= gridW || y >= gridH ? 0 : density[x * gridH + y];
+                pixels.put(oy * windowW + ox, (byte) (MathUtils.clamp(d, 0, 1) * 255));
+            }
+        }
+        densityTexture.draw(pixmap, 0, 0);
+
+        float scroll = time * NOISE_SPEED / NOISE_TILES;
+        shader.begin();
+        shader.setUniformf("u_window", windowX, windowY, windowW, windowH);
+        shader.setUniformf("u_scroll", scroll, scroll * 0.6f);
+        shader.setUniformf("u_noiseScale", 1 / NOISE_TILES);
+        shader.end();
+        canvas.begin();
+        canvas.drawFogTexture(densityTexture, noiseTexture, shader, FOG_COLOR,
+                windowX * tileSize * scaleX, windowY * tileSize * scaleY,
+                windowW * tileSize * scaleX, windowH * tileSize * scaleY);
+        canvas.end();
+    }
+
+    /**
+     * Creates a tiling texture of smooth value noise.
+     *
+     * @return The noise texture.
+     */
+    private static Texture createNoise() {
+        Random random = new Random(NOISE_SIZE);
+        float[] lattice = new float[NOISE_CELLS * NOISE_CELLS];
+        for (int i = 0; i < lattice.length; i++) lattice[i] = random.nextFloat();
+
+        Pixmap noise = new Pixmap(NOISE_SIZE, NOISE_SIZE, Pixmap.Format.Alpha);
+        ByteBuffer pixels = noise.getPixels();
+        float cell = (float) NOISE_SIZE / NOISE_CELLS;
+        for (int y = 0; y < NOISE_SIZE; y++) {
+            for (int x = 0; x < NOISE_SIZE; x++) {
+                float u = x / cell, v = y / cell;
+                int x0 = (int) u, y0 = (int) v;
+                int x1 = (x0 + 1) % NOISE_CELLS, y1 = (y0 + 1) % NOISE_CELLS;
+                float fx = u - x0, fy = v - y0;
+                fx = fx * fx * (3 - 2 * fx);
+                fy = fy * fy * (3 - 2 * fy);
+                float bottom = MathUtils.lerp(lattice[y0 * NOISE_CELLS + x0], lattice[y0 * NOISE_CELLS + x1], fx);
+                float top = MathUtils.lerp(lattice[y1 * NOISE_CELLS + x0], lattice[y1 * NOISE_CELLS + x1], fx);
+                pixels.put(y * NOISE_SIZE + x, (byte) (MathUtils.lerp(bottom, top, fy) * 255));
+            }
+        }
+        Texture texture = new Texture(noise);
+        texture.setFilter(Texture.TextureFilter.Linear, Texture.TextureFilter.Linear);
+        texture.setWrap(Texture.TextureWrap.Repeat, Texture.TextureWrap.Repeat);
+        noise.dispose();
+        return texture;
+    }
+
+    /**
+     * Frees the textures and shader.
+     */
+    public void dispose() {
+        if (pixmap != null) pixmap.dispose();
+        if (densityTexture != null) densityTexture.dispose();
+        noiseTexture.dispose();
+        shader.dispose();
+    }
+}
@@ -8,6 +8,8 @@ import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.graphics.GL20;
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.utils.JsonReader;
+import com.badlogic.gdx.utils.JsonValue;
 import com.badlogic.gdx.utils.ScreenUtils;
 import com.fallenflame.game.util.ScreenListener;
 
@@ -55,12 +57,23 @@ public class GDXRoot extends Game implements ScreenListener {
 
 	private Transition transition;
 
+	/** Batch job to run once assets are loaded, or null to play normally */
+	private String batchJobPath;
 
 	/**
 	 * Creates a new game from the configuration settings.
 	 */
 	public GDXRoot() {}
 
+	/**
+	 * Creates a game that runs the given batch job (see BatchRunner) and exits.
+	 *
+	 * @param batchJobPath path of the batch job JSON, or null to play normally
+	 */
+	public GDXRoot(String batchJobPath) {
+		this.batchJobPath = batchJobPath;
+	}
+
 	/**
 	 * Called when the Application is first created.
 	 *
@@ -165,6 +178,11 @@ public class GDXRoot extends Game implements ScreenListener {
 		if (screen == loading) {
 			if (exitCode == 420) {
 				engine.loadContent();
+				if (batchJobPath != null) {
+					JsonValue globalJson = new JsonReader().parse(Gdx.files.internal("jsons/global.json"));
+					BatchRunner.runJobFile(Gdx.files.absolute(batchJobPath), globalJson);
+					Gdx.app.exit();
+				}
 			} else {
 				if (loading.toControl) {
 					Gdx.input.setInputProcessor(control);
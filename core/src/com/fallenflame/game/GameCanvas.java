@@ -6,7 +6,6 @@ import com.badlogic.gdx.graphics.*;
 import com.badlogic.gdx.graphics.g2d.*;
 import com.badlogic.gdx.graphics.glutils.*;
 import com.badlogic.gdx.physics.box2d.*;
-import com.badlogic.gdx.utils.Array;
 
 public class GameCanvas {
     /**@author: Professor White */
@@ -883,29 +882,57 @@ public class GameCanvas {
     }
 
     /**Draw a swirling fog at a certain position (x, y)
-     * @param fog, a PooledEffect 2D array with all fog that needs to be drawn
+     * @param fog, the fog particles of every tile
      * @param delta, frames per second*/
 
-    public void drawFog(FogController.fogParticle[][] fog, float delta){
-            for(int r = 0; r<fog.length; r++){
-                for(int c = 0; c<fog[r].length; c++) {
-                    if (fog[r][c] != null) {
-                        Array<ParticleEffectPool.PooledEffect> fogArr = fog[r][c].fogParticles;
-                        for (ParticleEffectPool.PooledEffect f : fogArr) {
-                            f.draw(spriteBatch, delta);
-                            /*Many tutorials free the particle after it's drawn, so I've tried that here. No idea if
-                            That impacted anything but it works so I've left it in*/
-                            if(f.isComplete()){
-                                f.free();
-                                fogArr.removeValue(f, true);
-                            }
-                        }
+    public void drawFog(FogArena fog, float delta){
+            // Walk backwards: tiles and effects that are freed are replaced by ones already drawn.
+            for(int k = fog.getActiveCount() - 1; k >= 0; k--){
+                int tile = fog.getActiveTile(k);
+                for (int i = fog.count(tile) - 1; i >= 0; i--) {
+                    ParticleEffectPool.PooledEffect f = fog.get(tile, i);
+                    f.draw(spriteBatch, delta);
+                    /*Many tutorials free the particle after it's drawn, so I've tried that here. No idea if
+                    That impacted anything but it works so I've left it in*/
+                    if(f.isComplete()){
+                        fog.free(tile, i);
                     }
                 }
             }
 
         }
 
+    /**
+     * Draws fog as a density texture combined with noise by a fog shader, in a single quad.
+     *
+     * The noise texture is bound to texture unit 1 (the shader samples it as u_noise), and the density
+     * texture to unit 0 as usual.  The sprite batch goes back to its default shader afterwards.
+     *
+     * @param density	The density texture (one texel per fog tile)
+     * @param noise		The noise texture
+     * @param shader	The fog shader
+     * @param tint		The fog color
+     * @param x 		The x-coordinate of the bottom left corner (on screen)
+     * @param y 		The y-coordinate of the bottom left corner (on screen)
+     * @param width		The width of the quad
+     * @param height	The height of the quad
+     */
+    public void drawFogTexture(Texture density, Texture noise, ShaderProgram shader, Color tint,
+                               float x, float y, float width, float height) {
+        if (active != DrawPass.STANDARD) {
+            Gdx.app.error("GameCanvas", "Cannot draw without active begin()", new IllegalStateException());
+            return;
+        }
+
+        spriteBatch.setShader(shader);
+        shader.setUniformi("u_noise", 1);
+        noise.bind(1);
+        Gdx.gl.glActiveTexture(GL20.GL_TEXTURE0);
+        spriteBatch.setColor(tint);
+        spriteBatch.draw(density, x, y, width, height);
+        spriteBatch.setShader(null);
+    }
+
     /**
      * Transform the given vertices by the affine transform
      */
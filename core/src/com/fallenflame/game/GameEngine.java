@@ -54,6 +54,8 @@ public class GameEngine implements Screen, InputProcessor {
     private static final boolean ALLOW_DEBUG = false;
 
     private static final String SAVE_PATH = "savedata/save.json";
+    /** Folder replays are written to (when "recordreplays" is set in global.json) */
+    private static final String REPLAY_PATH = "savedata/replays/";
     private LevelSave[] levelSaves;
     private LevelSelectMode levelSelect;
 
@@ -65,6 +67,14 @@ public class GameEngine implements Screen, InputProcessor {
     private JsonValue saveJson;
     /** The JSON defining the level model */
     private JsonValue levelJson;
+    /** State of the current level right after it was loaded (for retries) */
+    private LevelSnapshot levelStart;
+    /** Path of the current level JSON, relative to the jsons folder */
+    private String levelPath;
+    /** Recording of the current attempt (null if not recording) */
+    private Replay recording;
+    /** The player's commands, handed to the level every frame */
+    private final PlayerInput playerInput = new PlayerInput();
     /** Global JSON defining objects */
     private JsonValue globalJson;
     /**What actually keeps track of the assetState. Initially set to empty, as no resources will be in at that point*/
@@ -331,23 +341,76 @@ public class GameEngine implements Screen, InputProcessor {
         level.dispose();
         level = new LevelController();
 
+        resetStatus();
+
+        // Reload the json each time
+        levelPath = saveJson.get(lid).getString("path");
+        levelJson = jsonReader.parse(Gdx.files.internal("jsons/" + levelPath));
+        level.setSeed(System.nanoTime());
+        level.populate(levelJson, globalJson, fogTemplate);
+        level.setLevelState(LevelController.LevelState.IN_PROGRESS);
+        level.getWorld().setContactListener(level);
+        levelStart = level.snapshot();
+        startRecording();
+    }
+
+    /**
+     * Restarts the current level so that we can play it again.
+     *
+     * Unlike reset(), this does not rebuild the level.  It restores the snapshot taken
+     * when the level was loaded, which makes retrying a level nearly instant.
+     */
+    public void retry() {
+        if (levelStart == null || levelStart.level != level) {
+            reset(lastLevelPlayed);
+            return;
+        }
+
+        resetStatus();
+        level.restore(levelStart);
+        level.setLevelState(LevelController.LevelState.IN_PROGRESS);
+        startRecording();
+    }
+
+    /**
+     * Starts recording a replay of the current attempt, if enabled in global.json.
+     *
+     * Restoring the start snapshot returns the level to the state it was populated in,
+     * so retries are recorded against the same seed as the original load.
+     */
+    private void startRecording() {
+        if (!globalJson.getBoolean("recordreplays", false)) {
+            recording = null;
+            return;
+        }
+        recording = new Replay(levelPath, level.getSeed(), level.getTimeStep());
+        level.setRecording(recording);
+    }
+
+    /**
+     * Writes the replay of the current attempt, if one is being recorded.
+     */
+    private void saveRecording() {
+        if (recording == null) return;
+        String name = levelPath.replace('/', '-').replace(".json", "");
+        recording.save(Gdx.files.external(REPLAY_PATH + name + "-" + System.currentTimeMillis() + ".json"));
+        level.setRecording(null);
+        recording = null;
+    }
+
+    /**
+     * Clears the win/loss status and menu selection of the game.
+     */
+    private void resetStatus() {
         isSuccess = false;
         isFailed = false;
         prevFailed = false;
         prevSuccess = false;
         menuSelected = false;
         retrySelected = false;
-         countdown = -1;
-         hoverStates = new int[2];
-         hoverRects = new Rectangle[2];
-
-
-        // Reload the json each time
-        String currentLevelPath = "jsons/" + saveJson.get(lid).getString("path"); // Currently just gets first level
-        levelJson = jsonReader.parse(Gdx.files.internal(currentLevelPath));
-        level.populate(levelJson, globalJson, fogTemplate);
-        level.setLevelState(LevelController.LevelState.IN_PROGRESS);
-        level.getWorld().setContactListener(level);
+        countdown = -1;
+        hoverStates = new int[2];
+        hoverRects = new Rectangle[2];
     }
 
     /**
@@ -404,7 +467,7 @@ public class GameEngine implements Screen, InputProcessor {
                 }
             else if(isFailed){
                 if(retrySelected){
-                    reset(lastLevelPlayed);
+                    retry();
                 }
                 else if(menuSelected){
                     listener.exitScreen(this, 1);
@@ -431,10 +494,17 @@ public class GameEngine implements Screen, InputProcessor {
             return;
         }
 
-        if (flarePressed && !flarePrevious) {
-            level.createFlare(getMousePosition(), getScreenDimensions());
+        // Hand this frame's commands to the level; they are applied on each tick
+        playerInput.moveX = horizontal;
+        playerInput.moveY = vertical;
+        playerInput.flare = flarePressed && !flarePrevious;
+        if (playerInput.flare) {
+            playerInput.flareAngle = getFlareAngle(getMousePosition(), getScreenDimensions());
         }
-        // Rotate the avatar to face the direction of movement
+        playerInput.sprint = sprintPressed;
+        playerInput.sneak = sneakPressed;
+        level.setInput(playerInput);
+        // Play walk sound while moving
         moveAngle.set(horizontal,vertical);
         if (moveAngle.len2() > 0.0f) {
             if (!level.getPlayer().isPlayingSound()) {
@@ -445,21 +515,6 @@ public class GameEngine implements Screen, InputProcessor {
             level.getPlayer().getWalkSound().stop();
             level.getPlayer().setPlayingSound(false);
         }
-        if (sprintPressed && !sprintPrevious) {
-            // If player just started sprinting
-            level.makeSprint();
-        } else if (!sprintPressed && sprintPrevious) {
-            // If player just stopped sprinting
-            level.makeWalk();
-        }
-        if (sneakPressed && !sneakPrevious) {
-            // If player just started sneaking
-            level.makeSneak();
-        } else if (!sneakPressed && sneakPrevious) {
-            // If player just stopped sneaking
-            level.makeWalk();
-        }
-        level.getPlayer().move(moveAngle);
         level.update(delta);
         // Get new victory state
         isSuccess = level.getLevelState() == LevelController.LevelState.WIN || prevSuccess;
@@ -482,6 +537,7 @@ public class GameEngine implements Screen, InputProcessor {
         // If new win or loss, start countdown
         if((isSuccess && !prevSuccess) || (isFailed && !prevFailed)){
             countdown = COUNTDOWN_TIME;
+            saveRecording();
         }
         prevSuccess = isSuccess;
         prevFailed = isFailed;
@@ -642,6 +698,18 @@ public class GameEngine implements Screen, InputProcessor {
         return new Vector2(Gdx.input.getX(), Gdx.input.getY());
     }
 
+    /**
+     * Returns the angle to throw a flare at, from the player (screen center) to the mouse.
+     *
+     * @param mousePosition Position of mouse when flare launched
+     * @param screenDimensions Size of the screen
+     * @return the throw angle in radians
+     */
+    private float getFlareAngle(Vector2 mousePosition, Vector2 screenDimensions) {
+        Vector2 posDif = new Vector2(mousePosition.x - screenDimensions.x / 2, mousePosition.y - screenDimensions.y / 2);
+        return posDif.angleRad(new Vector2(1, 0));
+    }
+
     /**
      * Reads the input for the player and converts the result into game logic.
      */
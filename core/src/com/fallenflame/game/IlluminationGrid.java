@@ -0,0 +1,295 @@
+package com.fallenflame.game;
+
+import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.utils.IntMap;
+import com.fallenflame.game.enemies.EnemyModel;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * {@code IlluminationGrid} answers "is this lit?" for gameplay, fog and AI in constant time.
+ *
+ * Once per tick, the light of the player, the flares and the activated enemies is stamped into a coarse grid of tiles.
+ * Each tile center stores {@code 1 - d / r} for the light that reaches it best, where d is the distance to the light
+ * and r its radius, so a value of 0 is the edge of a light and 1 its center. Tiles just outside a light get negative
+ * values, which lets queries at arbitrary positions interpolate the four nearest tiles and still find the edge of a
+ * light precisely.
+ *
+ * The player's light is also kept in a layer of its own, since enemies react to it differently.
+ *
+ * Tiles well inside a light (where fog clears) are also marked in a bitmask. Lights are stamped into it with disc
+ * stencils that are computed once per (quantized) radius, so marking a light takes a few bit operations per row and
+ * no square roots.
+ */
+public class IlluminationGrid {
+    /** Value of a tile that no light reaches */
+    public static final float DARK = -1f;
+    /** Fraction of a light's radius within which tiles are bright */
+    public static final float BRIGHT_FRACTION = 0.75f;
+    /** Number of steps per tile that stencil radii are rounded to */
+    private static final int RADIUS_STEPS = 4;
+
+    /** Number of tiles across */
+    private int width;
+    /** Number of tiles down */
+    private int height;
+    /** Size of a tile (in world units) */
+    private float tileSize;
+    /** Light level of each tile, from every light (indexed x * height + y) */
+    private float[] levels;
+    /** Light level of each tile, from the player's light only (indexed x * height + y) */
+    private float[] playerLevels;
+    /** Bright tiles, one bit per tile (indexed y * wordsPerRow + x / 64) */
+    private long[] bright;
+    /** Number of longs in a row of the bright mask */
+    private int wordsPerRow;
+    /**
+     * Disc stencils, by radius in steps of 1 / RADIUS_STEPS tiles. Each holds the half width (in tiles) of every row
+     * of the disc, from the bottom row to the top.
+     */
+    private final IntMap<int[]> stencils = new IntMap<>();
+    /** Tiles whose bright bit may have changed */
+    private final TileChanges changes = new TileChanges();
+
+    /**
+     * Sizes the grid to cover the level, with the same tiles as a {@code LevelModel} of the given tile size.
+     *
+     * @param bounds The bounds of the level.
+     * @param tileSize The size of a tile.
+     */
+    public void initialize(Rectangle bounds, float tileSize) {
+        this.tileSize = tileSize;
+        width = Math.max(1, (int) Math.ceil(bounds.getWidth() / tileSize));
+        height = Math.max(1, (int) Math.ceil(bounds.getHeight() / tileSize));
+        levels = new float[width * height];
+        playerLevels = new float[width * height];
+        wordsPerRow = (width + 63) / 64;
+        bright = new long[wordsPerRow * height];
+        clear();
+        changes.markAll();
+    }
+
+    /**
+     * Returns the tiles whose bright bit may have changed since the consumer last cleared them.
+     *
+     * @return The changed tiles.
+     */
+    public TileChanges getChanges() { return changes; }
+
+    /**
+     * Darkens every tile.
+     */
+    public void clear() {
+        Arrays.fill(levels, DARK);
+        Arrays.fill(playerLevels, DARK);
+        Arrays.fill(bright, 0);
+    }
+
+    /**
+     * Restamps every light. Call once per tick, after everything has moved.
+     *
+     * @param player The player.
+     * @param flares The flares.
+     * @param enemies The enemies (only activated ones give off light).
+     */
+    public void update(PlayerModel player, List<FlareModel> flares, List<EnemyModel> enemies) {
+        clear();
+        changes.beginStamps();
+        stamp(playerLevels, player.getTextureX(), player.getTextureY(), player.getLightRadius());
+        stamp(levels, player.getTextureX(), player.getTextureY(), player.getLightRadius());
+        stampBright(player.getTextureX(), player.getTextureY(), player.getLightRadius());
+        for (int k = 0; k < flares.size(); k++) {
+            FlareModel flare = flares.get(k);
+            stamp(levels, flare.getX(), flare.getY(), flare.getLightRadius());
+            stampBright(flare.getX(), flare.getY(), flare.getLightRadius());
+        }
+        for (int k = 0; k < enemies.size(); k++) {
+            EnemyModel enemy = enemies.get(k);
+            if (!enemy.isActivated()) continue;
+            stamp(levels, enemy.getX(), enemy.getY(), enemy.getLightRadius());
+            stampBright(enemy.getX(), enemy.getY(), enemy.getLightRadius());
+        }
+        changes.endStamps();
+    }
+
+    /**
+     * Marks the tiles well inside a light as bright, with the stencil for its radius centered on its tile.
+     *
+     * @param x The x coordinate of the light.
+     * @param y The y coordinate of the light.
+     * @param radius The radius of the light.
+     */
+    private void stampBright(float x, float y, float radius) {
+        if (radius <= 0) return;
+        int steps = Math.round(radius * BRIGHT_FRACTION / tileSize * RADIUS_STEPS);
+        int[] stencil = getStencil(steps);
+        int cx = (int) Math.floor(x / tileSize);
+        int cy = (int) Math.floor(y / tileSize);
+        int reach = stencil.length / 2;
+        changes.stamp(cx - stencil[reach], cy - reach, cx + stencil[reach], cy + reach, steps);
+        for (int dy = -reach; dy <= reach; dy++) {
+            int ty = cy + dy;
+            if (ty < 0 || ty >= height) continue;
+            int half = stencil[dy + reach];
+            setBits(ty * wordsPerRow, Math.max(0, cx - half), Math.min(width - 1, cx + half));
+        }
+    }
+
+    /**
+     * Returns the disc stencil for a radius, computing it the first time it is needed.
+     *
+     * @param steps The radius, in steps of 1 / RADIUS_STEPS tiles.
+     *
+     * @return The half width of every row of the disc, from the bottom row to the top.
+     */
+    private int[] getStencil(int steps) {
+        int[] stencil = stencils.get(steps);
+        if (stencil == null) {
+            float r = (float) steps / RADIUS_STEPS;
+            int reach = (int) r;
+            stencil = new int[2 * reach + 1];
+            for (int dy = -reach; dy <= reach; dy++) {
+                stencil[dy + reach] = (int) Math.sqrt(r * r - dy * dy);
+            }
+            stencils.put(steps, stencil);
+        }
+        return stencil;
+    }
+
+    /**
+     * Sets a run of bits in a row of the bright mask.
+     *
+     * @param row Index of the first word of the row.
+     * @param from First tile to set.
+     * @param to Last tile to set (inclusive).
+     */
+    private void setBits(int row, int from, int to) {
+        if (from > to) return;
+        int first = from >> 6, last = to >> 6;
+        long firstMask = -1L << (from & 63);
+        long lastMask = -1L >>> (63 - (to & 63));
+        if (first == last) {
+            bright[row + first] |= firstMask & lastMask;
+            return;
+        }
+        bright[row + first] |= firstMask;
+        for (int w = first + 1; w < last; w++) bright[row + w] = -1L;
+        bright[row + last] |= lastMask;
+    }
+
+    /**
+     * Returns whether a tile is well inside a light (within BRIGHT_FRACTION of its radius).
+     *
+     * @param x The x index of the tile.
+     * @param y The y index of the tile.
+     *
+     * @return Whether the tile is bright.
+     */
+    public boolean isBright(int x, int y) {
+        if (x < 0 || y < 0 || x >= width || y >= height) return false;
+        return (bright[y * wordsPerRow + (x >> 6)] & (1L << (x & 63))) != 0;
+    }
+
+    /**
+     * Stamps a circular light into a layer.
+     *
+     * Only the tiles within a tile of the light's edge are touched, so a light costs time in proportion to its area.
+     *
+     * @param layer The layer to stamp into.
+     * @param x The x coordinate of the light.
+     * @param y The y coordinate of the light.
+     * @param radius The radius of the light.
+     */
+    private void stamp(float[] layer, float x, float y, float radius) {
+        if (radius <= 0) return;
+        float reach = radius + tileSize;
+        int lowX = Math.max(0, (int) Math.floor((x - reach) / tileSize));
+        int highX = Math.min(width - 1, (int) Math.floor((x + reach) / tileSize));
+        int lowY = Math.max(0, (int) Math.floor((y - reach) / tileSize));
+        int highY = Math.min(height - 1, (int) Math.floor((y + reach) / tileSize));
+        for (int tx = lowX; tx <= highX; tx++) {
+            float dx = (tx + 0.5f) * tileSize - x;
+            int row = tx * height;
+            for (int ty = lowY; ty <= highY; ty++) {
+                float dy = (ty + 0.5f) * tileSize - y;
+                float level = 1 - (float) Math.sqrt(dx * dx + dy * dy) / radius;
+                if (level > layer[row + ty]) layer[row + ty] = level;
+            }
+        }
+    }
+
+    /**
+     * Returns the light level at the center of a tile.
+     *
+     * @param x The x index of the tile.
+     * @param y The y index of the tile.
+     *
+     * @return The light level (positive if lit).
+     */
+    public float getLight(int x, int y) {
+        if (x < 0 || y < 0 || x >= width || y >= height) return DARK;
+        return levels[x * height + y];
+    }
+
+    /**
+     * Returns the light level at a position, interpolated from the nearest tiles.
+     *
+     * @param x The x coordinate.
+     * @param y The y coordinate.
+     *
+     * @return The light level (positive if lit).
+     */
+    public float getLightAt(float x, float y) {
+        return sample(levels, x, y);
+    }
+
+    /**
+     * Returns the level of the player's light at a position, interpolated from the nearest tiles.
+     *
+     * @param x The x coordinate.
+     * @param y The y coordinate.
+     *
+     * @return The light level (positive if lit by the player).
+     */
+    public float getPlayerLightAt(float x, float y) {
+        return sample(playerLevels, x, y);
+    }
+
+    /**
+     * Returns whether a position is lit by any light.
+     *
+     * @param x The x coordinate.
+     * @param y The y coordinate.
+     *
+     * @return Whether the position is within a light.
+     */
+    public boolean isLit(float x, float y) {
+        return getLightAt(x, y) >= 0;
+    }
+
+    /**
+     * Samples a layer with bilinear interpolation between tile centers.
+     *
+     * @param layer The layer.
+     * @param x The x coordinate.
+     * @param y The y coordinate.
+     *
+     * @return The interpolated light level.
+     */
+    private float sample(float[] layer, float x, float y) {
+        float u = x / tileSize - 0.5f;
+        float v = y / tileSize - 0.5f;
+        int x0 = (int) Math.floor(u);
+        int y0 = (int) Math.floor(v);
+        float fx = u - x0;
+        float fy = v - y0;
+        int x1 = Math.min(width - 1, Math.max(0, x0 + 1));
+        int y1 = Math.min(height - 1, Math.max(0, y0 + 1));
+        x0 = Math.min(width - 1, Math.max(0, x0));
+        y0 = Math.min(height - 1, Math.max(0, y0));
+        float bottom = layer[x0 * height + y0] * (1 - fx) + layer[x1 * height + y0] * fx;
+        float top = layer[x0 * height + y1] * (1 - fx) + layer[x1 * height + y1] * fx;
+        return bottom * (1 - fy) + top * fy;
+    }
+}
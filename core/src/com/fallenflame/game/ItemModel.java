@@ -100,6 +100,30 @@ public class ItemModel extends WheelObstacle implements ILight  {
         setTexture(texture);
     }
 
+    /**
+     * The simulated state of a item, including whether it is still active.
+     */
+    protected static class ItemState extends ObstacleState {
+        private boolean active;
+    }
+
+    @Override
+    protected ObstacleState createState() {
+        return new ItemState();
+    }
+
+    @Override
+    protected void writeState(ObstacleState state) {
+        super.writeState(state);
+        ((ItemState) state).active = active;
+    }
+
+    @Override
+    public void restoreState(ObstacleState state) {
+        super.restoreState(state);
+        active = ((ItemState) state).active;
+    }
+
     /**
      * Draws the physics object.
      *
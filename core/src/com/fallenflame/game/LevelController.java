@@ -1,5 +1,7 @@
 package com.fallenflame.game;
 
+import com.badlogic.ashley.core.Engine;
+import com.badlogic.ashley.core.Entity;
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.graphics.g2d.BitmapFont;
@@ -8,16 +10,21 @@ import com.badlogic.gdx.graphics.g2d.TextureRegion;
 import com.badlogic.gdx.math.Rectangle;
 import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.physics.box2d.*;
+import com.badlogic.gdx.utils.IntArray;
 import com.badlogic.gdx.utils.JsonValue;
+import com.badlogic.gdx.utils.ObjectMap;
+import com.fallenflame.game.ecs.*;
 import com.fallenflame.game.enemies.*;
 import com.fallenflame.game.physics.obstacle.Obstacle;
+import com.fallenflame.game.physics.obstacle.SimpleObstacle;
 import com.fallenflame.game.util.BGMController;
 import com.fallenflame.game.util.JsonAssetManager;
 
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 
 /** Credit to Walker White for some code reused from B2LightsDemo */
 public class LevelController implements ContactListener {
@@ -61,6 +68,8 @@ public class LevelController implements ContactListener {
 
     /** Whether or not the level has been populated */
     private boolean populated;
+    /** Whether the level runs without lights, fog, text or sound (see setHeadless) */
+    private boolean headless;
     /** Whether ot not the ghost has been added to the level*/
     private boolean ghostAdded = false;
 
@@ -81,14 +90,36 @@ public class LevelController implements ContactListener {
     private List<FireballModel> fireballs;
     /** Reference to all items */
     private List<ItemModel> items;
-    /** Reference to all extras*/
-    private List<ExtraModel> extras;
     /** Reference to continuing player-item contacts */
     private HashSet<ItemModel> itemContacts;
     /** Level Model for AI Pathfinding */
     private LevelModel pathLevelModel;
     /** Level Model for fog */
     private LevelModel fogLevelModel;
+    /** Where the level is lit (aligned with the fog tiles, shared by fog and AI) */
+    private IlluminationGrid illumination;
+    /** Models recorded in a snapshot, which a restore may put back into the world */
+    private final HashSet<SimpleObstacle> snapshotted = new HashSet<>();
+    /** Models out of the world but kept for a restore (disposed with the level) */
+    private final HashSet<SimpleObstacle> retired = new HashSet<>();
+    /** Part of the level on screen this frame (in screen pixels) */
+    private final Rectangle view = new Rectangle();
+
+    // Entities and systems
+    /** The entity of every model in the level, including models kept for a restore */
+    private final ObjectMap<SimpleObstacle, Entity> entities = new ObjectMap<>();
+    /** The engine holding the entities of the models in the world (one per population) */
+    private Engine engine;
+    /** Interpolates the moving bodies */
+    private MotionSystem motionSystem;
+    /** Draws the models */
+    private RenderSystem renderSystem;
+    /** Updates the lights of the light emitters */
+    private LightSystem lightSystem;
+    /** Stamps the models that affect the fog into the level models */
+    private FogSystem fogSystem;
+    /** Plays the enemy sounds (null when headless) */
+    private SoundSystem soundSystem;
 
     // JSON data (for objects created after population)
     /** Flare JSONValue */
@@ -159,6 +190,8 @@ public class LevelController implements ContactListener {
     // Controllers
     private final LightController lightController;
     private final List<AIController> AIControllers;
+    /** Action chosen by each AI controller this tick (indexed like enemies) */
+    private final IntArray enemyActions;
     private final FogController fogController;
     private final TextController textController;
 
@@ -181,7 +214,7 @@ public class LevelController implements ContactListener {
     protected int maxFPS;
     /** The minimum frames per second setting for this level */
     protected int minFPS;
-    /** The amount of time in to cover a single animation frame */
+    /** The amount of time in to cover a single simulation tick */
     protected float timeStep;
     /** The maximum number of steps allowed before moving physics forward */
     protected float maxSteps;
@@ -189,6 +222,25 @@ public class LevelController implements ContactListener {
     protected float maxTimePerFrame;
     /** The amount of time that has passed without updating the frame */
     protected float physicsTimeLeft;
+    /** Fraction of a tick left over in the accumulator, used to interpolate rendering */
+    protected float renderAlpha;
+    /** Number of simulation ticks since the level was populated */
+    private long tickCount;
+
+    // Input and replays
+    /** The player's commands, applied at the start of each tick */
+    private final PlayerInput input = new PlayerInput();
+    /** Whether sprint was held on the previous tick */
+    private boolean sprintHeld;
+    /** Whether sneak was held on the previous tick */
+    private boolean sneakHeld;
+    /** Cache for the player movement vector */
+    private final Vector2 moveCache = new Vector2();
+    /** Seed for all level randomness */
+    private long seed;
+    /** Replay recording the input of every tick (null if not recording) */
+    private Replay recording;
+
     /** FPS of game */
     private float fps;
     /** Number of ticks sense we started this controller (used to limit number of fps updates) */
@@ -268,6 +320,13 @@ public class LevelController implements ContactListener {
      */
     public List<FlareModel> getFlares() { return flares; }
 
+    /**
+     * Returns a reference to the items
+     *
+     * @return a reference to the items
+     */
+    public List<ItemModel> getItems() { return items; }
+
     /**
      * Returns whether this level is currently in debug node
      *
@@ -324,6 +383,16 @@ public class LevelController implements ContactListener {
      */
     public void setMaxFPS(int value) { maxFPS = value; }
 
+    /**
+     * Returns the length of a single simulation tick in seconds
+     *
+     * Physics, AI and all other game logic advance in steps of exactly this size,
+     * independent of the render frame rate.
+     *
+     * @return the length of a single simulation tick in seconds
+     */
+    public float getTimeStep() { return timeStep; }
+
     /**
      * Returns the minimum FPS supported by this level
      *
@@ -342,6 +411,70 @@ public class LevelController implements ContactListener {
      */
     public void setMinFPS(int value) { minFPS = value; }
 
+    /**
+     * Returns the number of simulation ticks since the level was populated
+     *
+     * @return the number of simulation ticks since the level was populated
+     */
+    public long getTickCount() { return tickCount; }
+
+    /**
+     * Returns the seed for all level randomness
+     *
+     * @return the seed for all level randomness
+     */
+    public long getSeed() { return seed; }
+
+    /**
+     * Sets the seed for all level randomness.  Must be called before populate().
+     *
+     * @param value the seed for all level randomness
+     */
+    public void setSeed(long value) { seed = value; }
+
+    /**
+     * Sets the player's commands for the coming ticks.
+     *
+     * A flare throw is held until a tick consumes it, so clicks are never lost to a
+     * frame that runs no ticks.
+     *
+     * @param value the player's commands (copied)
+     */
+    public void setInput(PlayerInput value) {
+        boolean pendingFlare = input.flare;
+        float pendingAngle = input.flareAngle;
+        input.set(value);
+        if (pendingFlare && !value.flare) {
+            input.flare = true;
+            input.flareAngle = pendingAngle;
+        }
+    }
+
+    /**
+     * Returns whether the level runs without lights, fog, text or sound
+     *
+     * @return whether the level runs without lights, fog, text or sound
+     */
+    public boolean isHeadless() { return headless; }
+
+    /**
+     * Sets whether the level runs without lights, fog, text or sound.  Must be called
+     * before populate().
+     *
+     * A headless level touches no graphics or audio state, so it can be simulated
+     * off the main thread with step() (see BatchRunner).  It cannot be drawn.
+     *
+     * @param value whether the level runs headless
+     */
+    public void setHeadless(boolean value) { headless = value; }
+
+    /**
+     * Starts recording the input of every tick into the given replay.
+     *
+     * @param value the replay to record into, or null to stop recording
+     */
+    public void setRecording(Replay value) { recording = value; }
+
     /**
      * Gets the current state of the level.
      *
@@ -374,17 +507,19 @@ public class LevelController implements ContactListener {
         levelState = LevelState.IN_PROGRESS;
         // Controllers
         lightController = new LightController();
-        AIControllers = new LinkedList<>();
+        AIControllers = new ArrayList<>();
+        enemyActions = new IntArray();
         fogController = new FogController();
         textController = new TextController();
         // Models
-        walls = new LinkedList<>();
-        trees = new LinkedList<>();
-        enemies = new LinkedList<>();
-        flares = new LinkedList<>();
-        fireballs = new LinkedList<>();
+        walls = new ArrayList<>();
+        trees = new ArrayList<>();
+        enemies = new ArrayList<>();
+        flares = new ArrayList<>();
+        fireballs = new ArrayList<>();
         pathLevelModel = new LevelModel();
         fogLevelModel = new LevelModel();
+        illumination = new IlluminationGrid();
         // Not yet populated
         populated = false;
 
@@ -443,9 +578,24 @@ public class LevelController implements ContactListener {
         // Compute the FPS
         int[] fps = levelJson.get("fpsRange").asIntArray();
         maxFPS = fps[1]; minFPS = fps[0];
-        timeStep = 1.0f/maxFPS;
-        maxSteps = 1.0f + maxFPS/minFPS;
+        // The simulation may tick slower than the render rate (e.g. 30Hz on weak machines)
+        int tickRate = globalJson.has("tickrate") ? globalJson.get("tickrate").asInt() : maxFPS;
+        timeStep = 1.0f/tickRate;
+        maxSteps = 1.0f + tickRate/minFPS;
         maxTimePerFrame = timeStep*maxSteps;
+        physicsTimeLeft = 0;
+        renderAlpha = 0;
+
+        // Systems run over the entities of the models in the world
+        engine = new Engine();
+        motionSystem = new MotionSystem();
+        renderSystem = new RenderSystem();
+        lightSystem = new LightSystem(lightController);
+        fogSystem = new FogSystem(pathLevelModel, fogLevelModel, illumination);
+        engine.addSystem(motionSystem);
+        engine.addSystem(renderSystem);
+        engine.addSystem(lightSystem);
+        engine.addSystem(fogSystem);
 
         // Create player
         player = new PlayerModel();
@@ -453,7 +603,12 @@ public class LevelController implements ContactListener {
         player.initialize(globalJson.get("player"), levelJson);
         player.initializeTextures(globalJson.get("player"));
         player.activatePhysics(world);
+        track(player, LevelEntities.player(player));
         assert inBounds(player);
+        if (!headless) {
+            soundSystem = new SoundSystem(player);
+            engine.addSystem(soundSystem);
+        }
         startPos = levelJson.get("playerpos").asFloatArray();
         // Create Exit
         exit = new ExitModel();
@@ -480,6 +635,7 @@ public class LevelController implements ContactListener {
             wall.setDrawScale(scale);
             wall.activatePhysics(world);
             walls.add(wall);
+            track(wall, LevelEntities.wall(wall));
             assert inBounds(wall);
         }
         // Create walls.
@@ -490,6 +646,7 @@ public class LevelController implements ContactListener {
                 tree.setDrawScale(scale);
                 tree.activatePhysics(world);
                 trees.add(tree);
+                track(tree, LevelEntities.wall(tree));
                 assert inBounds(tree);
             }
         }
@@ -513,9 +670,9 @@ public class LevelController implements ContactListener {
             enemy.setDrawScale(scale);
             enemy.initialize(globalEnemies.get(enemyType), enemyJSON.get("enemypos").asFloatArray());
             enemy.initializeTextures(globalEnemies.get(enemyType));
-            enemy.setConstantSoundID(enemy.getConstantSound().loop(0, ENEMY_CONS_PITCH, 0));
             enemy.activatePhysics(world);
             enemies.add(enemy);
+            track(enemy, LevelEntities.enemy(enemy));
             // Initialize AIController
             if(enemyType.equals("typeA")) {
                 // If subtype pathing, give pathCoors as input as well
@@ -541,8 +698,8 @@ public class LevelController implements ContactListener {
         ghostJSON = globalEnemies.get("ghost");
 
         // Create items (if any exist)
-        items = new LinkedList();
-        itemContacts = new HashSet();
+        items = new ArrayList<>();
+        itemContacts = new HashSet<>();
         if(levelJson.has("items")){
             JsonValue globalItemJson = globalJson.get("items");
             for(JsonValue levelItemJson : levelJson.get("items")){
@@ -552,11 +709,11 @@ public class LevelController implements ContactListener {
                 item.activatePhysics(world);
                 assert inBounds(item);
                 items.add(item);
+                track(item, LevelEntities.item(item));
             }
         }
 
         // Create cosmetic extras (if any exist)
-        extras = new LinkedList<>();
         if(levelJson.has("extras")){
             JsonValue globalExtrasJson = globalJson.get("extras");
             for(JsonValue levelExtraJson : levelJson.get("extras")){
@@ -564,11 +721,13 @@ public class LevelController implements ContactListener {
                 extra.initialize(globalExtrasJson, levelExtraJson.get("extraType").asString());
                 extra.setDrawScale(scale);
                 assert inBounds(extra);
-                extras.add(extra);
+                track(extra, LevelEntities.extra(extra));
             }
         }
+        // The ground layer is drawn in the order entities are added, so the exit goes over the extras
+        track(exit, LevelEntities.exit(exit));
 
-        textController.initialize(levelJson.has("texts") ? levelJson.get("texts") : null);
+        if (!headless) textController.initialize(levelJson.has("texts") ? levelJson.get("texts") : null);
 
         // Set background music
         bgm = levelJson.has("bgm") ? levelJson.get("bgm").asString() : null;
@@ -576,8 +735,20 @@ public class LevelController implements ContactListener {
         // Initialize levelModel, lightController, and fogController
         pathLevelModel.initialize(bounds, walls, trees, enemies, PATH_GRID_SIZE);
         fogLevelModel.initialize(bounds, walls, trees, enemies, FOG_GRID_SIZE);
-        lightController.initialize(player, exit, levelJson.get("lighting"), world, bounds, scale);
-        fogController.initialize(fogTemplate, fogLevelModel, player, flares, enemies);
+        illumination.initialize(bounds, FOG_GRID_SIZE);
+        pathLevelModel.setIllumination(illumination);
+        fogLevelModel.setIllumination(illumination);
+        illumination.update(player, flares, enemies);
+        if (!headless) {
+            lightController.initialize(player, exit, levelJson.get("lighting"), walls, trees, bounds, scale);
+            fogController.setBudget(globalJson.has("fogbudget") ? globalJson.get("fogbudget").asInt() : FogController.DEFAULT_BUDGET);
+            // A level may ask for a fog mode of its own; otherwise the global one applies
+            String fogMode = levelJson.has("fogmode") ? levelJson.get("fogmode").asString()
+                    : globalJson.has("fogmode") ? globalJson.get("fogmode").asString() : "particles";
+            fogController.setMode(fogMode);
+            fogController.initialize(fogTemplate, fogLevelModel, player, flares, enemies);
+            fogController.setSeed(seed);
+        }
 
         JsonValue ghostSpawn = globalJson.get("ghost-spawn");
         ghostSpawnOffset = new Vector2(ghostSpawn.get("offset").get("x").asFloat(),
@@ -597,50 +768,31 @@ public class LevelController implements ContactListener {
             return;
 
         lightController.dispose();
+        fogController.dispose();
         textController.dispose();
 
-        for(WallModel wall : walls) {
-            wall.deactivatePhysics(world);
-            wall.dispose();
+        stopAllSounds();
+        engine.removeAllEntities();
+        // Every model has an entity, including the ones kept for a restore
+        for(SimpleObstacle model : entities.keys()) {
+            model.deactivatePhysics(world);
+            model.dispose();
         }
+        entities.clear();
         walls.clear();
-        for(TreeModel tree : trees) {
-            tree.deactivatePhysics(world);
-            tree.dispose();
-        }
         trees.clear();
-        for(EnemyModel enemy : enemies) {
-            enemy.getConstantSound().stop();
-            enemy.getActiveSound().stop();
-            enemy.deactivatePhysics(world);
-            enemy.dispose();
-        }
         enemies.clear();
-        for(FlareModel flare : flares) {
-            flare.deactivatePhysics(world);
-            flare.dispose();
-        }
         flares.clear();
-        for(FireballModel fireball : fireballs) {
-            fireball.deactivatePhysics(world);
-            fireball.dispose();
-        }
         fireballs.clear();
-        for(ItemModel item : items) {
-            item.deactivatePhysics(world);
-            item.dispose();
-        }
         items.clear();
-        for(ExtraModel extra : extras) {
-            extra.dispose();
-        }
-        extras.clear();
-        exit.deactivatePhysics(world);
-        exit.dispose();
-        player.getWalkSound().stop();
-        player.setPlayingSound(false);
-        player.deactivatePhysics(world);
-        player.dispose();
+        retired.clear();
+        snapshotted.clear();
+        engine = null;
+        motionSystem = null;
+        renderSystem = null;
+        lightSystem = null;
+        fogSystem = null;
+        soundSystem = null;
 
         if (world != null) {
             world.dispose();
@@ -649,6 +801,129 @@ public class LevelController implements ContactListener {
         populated = false;
     }
 
+    /**
+     * Returns a snapshot of the current simulated state of this level.
+     *
+     * Taking a snapshot right after populate() allows the level to be restarted
+     * with restore() instead of being disposed and rebuilt from JSON.
+     *
+     * @return a snapshot of the current simulated state of this level
+     */
+    public LevelSnapshot snapshot() {
+        snapshotted.addAll(enemies);
+        snapshotted.addAll(flares);
+        snapshotted.addAll(fireballs);
+        snapshotted.addAll(items);
+        return new LevelSnapshot(this, player, enemies, AIControllers, flares, fireballs, items,
+                itemContacts, ghostAdded, levelState, tickCount, sprintHeld, sneakHeld);
+    }
+
+    /**
+     * Returns this level to the state recorded in the given snapshot.
+     *
+     * Models created since the snapshot (flares, fireballs, the ghost) are removed from
+     * the world and models removed since (picked up items, burnt out flares) are put back.
+     *
+     * @param snapshot	a snapshot previously returned by snapshot() on this level
+     */
+    public void restore(LevelSnapshot snapshot) {
+        if (snapshot.level != this) {
+            Gdx.app.error("LevelController", "Snapshot belongs to another level", new IllegalArgumentException());
+            return;
+        }
+
+        // Movement sounds are restarted by update() as needed. Constant sounds start and stop
+        // as enemies enter and leave the engine.
+        if (!headless) {
+            soundSystem.stopMovement();
+            player.getWalkSound().stop();
+            player.setPlayingSound(false);
+        }
+
+        restoreModels(enemies, snapshot.enemies);
+        restoreModels(flares, snapshot.flares);
+        restoreModels(fireballs, snapshot.fireballs);
+        restoreModels(items, snapshot.items);
+        AIControllers.clear();
+        AIControllers.addAll(snapshot.controllers);
+        itemContacts.clear();
+        itemContacts.addAll(snapshot.itemContacts);
+
+        for (Map.Entry<SimpleObstacle, SimpleObstacle.ObstacleState> e : snapshot.obstacleStates.entrySet()) {
+            e.getKey().restoreState(e.getValue());
+        }
+        for (Map.Entry<AIController, AIController.ControllerState> e : snapshot.controllerStates.entrySet()) {
+            e.getKey().restoreState(e.getValue());
+        }
+
+        ghostAdded = snapshot.ghostAdded;
+        levelState = snapshot.levelState;
+        tickCount = snapshot.tickCount;
+        sprintHeld = snapshot.sprintHeld;
+        sneakHeld = snapshot.sneakHeld;
+        input.clear();
+        physicsTimeLeft = 0;
+        renderAlpha = 0;
+        textController.clearMessages();
+        fogSystem.update(0);
+    }
+
+    /**
+     * Makes the current contents of a model list match a saved one, adding and removing
+     * bodies from the world as needed.
+     *
+     * @param current	the live model list
+     * @param saved		the model list recorded in a snapshot
+     */
+    private <T extends SimpleObstacle> void restoreModels(List<T> current, List<T> saved) {
+        for (T model : current) {
+            if (!saved.contains(model)) {
+                removeModel(model);
+            }
+        }
+        for (T model : saved) {
+            if (!current.contains(model)) {
+                retired.remove(model);
+                model.activatePhysics(world);
+                engine.addEntity(entities.get(model));
+            }
+        }
+        current.clear();
+        current.addAll(saved);
+    }
+
+    /**
+     * Takes a model out of the world.
+     *
+     * A model that a snapshot may put back keeps its shape until the level is
+     * disposed; any other model is disposed right away.
+     *
+     * @param model	the model to remove
+     */
+    private void removeModel(SimpleObstacle model) {
+        engine.removeEntity(entities.get(model));
+        model.deactivatePhysics(world);
+        if (snapshotted.contains(model)) {
+            retired.add(model);
+        } else {
+            entities.remove(model);
+            model.dispose();
+        }
+    }
+
+    /**
+     * Puts a model's entity into the engine.
+     *
+     * The entity is kept with the model, so a restore can put it back after removeModel().
+     *
+     * @param model	the model, already in the world
+     * @param entity	the entity for the model (see LevelEntities)
+     */
+    private void track(SimpleObstacle model, Entity entity) {
+        entities.put(model, entity);
+        engine.addEntity(entity);
+    }
+
     /**
      * Returns true if the object is in bounds.
      *
@@ -670,13 +945,50 @@ public class LevelController implements ContactListener {
      * This is borderline controller functionality.  However, we have to do this because
      * of how tightly coupled everything is.
      *
+     * Game logic advances in fixed ticks (see tick()); whatever time is left over is
+     * kept for the next frame and used to interpolate lights and sprites.
+     *
+     * http://gafferongames.com/game-physics/fix-your-timestep/
+     *
      * @param dt the time passed since the last frame
      */
     public void update(float dt) {
+        if (world == null) return;
+
+        physicsTimeLeft += dt;
+        if (physicsTimeLeft > maxTimePerFrame) {
+            physicsTimeLeft = maxTimePerFrame;
+        }
+        while (physicsTimeLeft >= timeStep) {
+            motionSystem.savePreviousTransforms();
+            tick(timeStep);
+            physicsTimeLeft -= timeStep;
+        }
+        renderAlpha = physicsTimeLeft / timeStep;
+
+        // If player won or is dead, that's it. Lights stay as they were.
+        if (player.isDead() || player.hasWon()) return;
+
+        // Update lights (once per frame, at the interpolated positions)
+        motionSystem.beginInterpolation(renderAlpha);
+        lightSystem.updateLights();
+        motionSystem.endInterpolation();
+    }
+
+    /**
+     * Advances the game logic by exactly one simulation tick.
+     *
+     * @param dt the length of a tick
+     */
+    private void tick(float dt) {
+        // Apply the player's commands
+        if (recording != null) recording.record(input);
+        if (player.isAlive() || player.isWinning()) applyInput();
+        input.flare = false;
+        tickCount++;
+
         // If the player is alive, update the Box2D world.
-        // If updating fails for whatever reason (which it should never)
-        // just give up already.
-        if(player.isAlive() && !fixedStep(dt)) return;
+        if (player.isAlive()) world.step(dt, WORLD_VELOC, WORLD_POSIT);
 
         // Update player. This is always necessary even if dying cos it
         // updates the texture.
@@ -699,8 +1011,6 @@ public class LevelController implements ContactListener {
         if (player.isWinning() || player.isDying()) {
             if(player.isWinning()) player.setLightRadiusSprint(); //increase light radius to see fire buddy
             else player.setLightRadiusWalk();
-
-            lightController.updateLights(flares, enemies, fireballs, items);
             return;
         }
 
@@ -722,43 +1032,23 @@ public class LevelController implements ContactListener {
         }
 
         // Get Enemy Actions
-        Iterator<AIController> ctrlI = AIControllers.iterator();
-        LinkedList<Integer> ctrlCodes = new LinkedList();
-        while(ctrlI.hasNext()){
-            AIController ctrl = ctrlI.next();
-            ctrlCodes.add(ctrl.getAction());
+        enemyActions.clear();
+        for (int k = 0; k < AIControllers.size(); k++) {
+            enemyActions.add(AIControllers.get(k).getAction());
         }
         // Execute Enemy Actions
-        Iterator<EnemyModel> enemyI = enemies.iterator();
-        Iterator<Integer> actionI = ctrlCodes.iterator();
-        while(enemyI.hasNext()){
-            EnemyModel enemy = enemyI.next();
-            int action = actionI.next();
+        for (int k = 0; k < enemies.size(); k++) {
+            EnemyModel enemy = enemies.get(k);
+            int action = enemyActions.get(k);
             enemy.executeMovementAction(action);
-            // Check if enemy is firing, for now only supports EnemyTypeBModel. TODO: Will need to rework if more firing enemies
+            // Check if enemy is firing (enemies that cannot fire ignore this)
             boolean firing = (action & EnemyModel.CONTROL_FIRE) != 0;
-            if (enemy.getClass() == EnemyTypeBModel.class) {
-                if(firing && ((EnemyTypeBModel) enemy).canFire()) {
-                    fireWeapon((EnemyTypeBModel) enemy);
-                } else {
-                    ((EnemyTypeBModel) enemy).coolDown(true);
-                }
-            }
-            enemy.update(dt);
-            // Play enemy sounds
-            float pan = (enemy.getX() - player.getX()) * PAN_SCL;
-            if (enemy.isActivated() && (enemy.getActiveSoundID() == -1)) {
-                //start sound
-                enemy.setActiveSoundID(enemy.getActiveSound().loop(ENEMY_MOV_BASE_VOL, ENEMY_MOV_PITCH, pan));
-            } else if (!enemy.isActivated()) {
-                //end sound
-                enemy.getActiveSound().stop();
-                enemy.setActiveSoundID(-1);
+            if(firing && enemy.canFire()) {
+                fireWeapon(enemy);
             } else {
-                //modify sound
-                enemy.getActiveSound().setPan(enemy.getActiveSoundID(), pan, ENEMY_MOV_BASE_VOL * ((1/enemy.getDistanceBetween(player) * ENEMY_MOVE_VOL_SCL)));
+                enemy.coolDown(true);
             }
-            enemy.getConstantSound().setPan(enemy.getConstantSoundID(), pan, (ENEMY_CONS_BASE_VOL * ((1/enemy.getDistanceBetween(player) * ENEMY_CONS_VOL_SCL)))-ENEMY_CONS_VOL_THR);
+            enemy.update(dt);
             assert inBounds(enemy);
         }
 
@@ -767,8 +1057,7 @@ public class LevelController implements ContactListener {
         while(i.hasNext()){
             FlareModel flare = i.next();
             if(flare.timeToBurnout() == 0){
-                flare.deactivatePhysics(world);
-                flare.dispose();
+                removeModel(flare);
                 i.remove();
             }
             else {
@@ -780,8 +1069,7 @@ public class LevelController implements ContactListener {
         while(ii.hasNext()){
             FireballModel f = ii.next();
             if(!f.isActive()){
-                f.deactivatePhysics(world);
-                f.dispose();
+                removeModel(f);
                 ii.remove();
             }
         }
@@ -802,63 +1090,69 @@ public class LevelController implements ContactListener {
         while(iii.hasNext()){
             ItemModel it = iii.next();
             if(!it.isActive()){
-                it.deactivatePhysics(world);
-                it.dispose();
+                removeModel(it);
                 iii.remove();
             }
         }
 
         // Update background music
-        if (player.getPowerVal() > 0 || !ghostJSON.has("bgm") || ghostJSON.get("bgm").asString().equals("")) {
-            if (bgm != null && !bgm.equals("")) {
-                BGMController.startBGM(bgm);
+        if (!headless) {
+            if (player.getPowerVal() > 0 || !ghostJSON.has("bgm") || ghostJSON.get("bgm").asString().equals("")) {
+                if (bgm != null && !bgm.equals("")) {
+                    BGMController.startBGM(bgm);
+                } else {
+                    BGMController.stopBGM();
+                }
             } else {
-                BGMController.stopBGM();
+                BGMController.startBGM(ghostJSON.get("bgm").asString());
             }
-        } else {
-            BGMController.startBGM(ghostJSON.get("bgm").asString());
         }
 
-        // Update level model.
-        pathLevelModel.update(player, enemies);
-        fogLevelModel.update(player, enemies);
-
-        // Update lights
-        lightController.updateLights(flares, enemies, fireballs, items);
+        // Update the level models and enemy sounds (see FogSystem and SoundSystem)
+        engine.update(dt);
     }
 
 
-    public void stopAllSounds(){
-        player.getWalkSound().stop();
-        player.setPlayingSound(false);
-        for(EnemyModel e : enemies){
-            e.getConstantSound().stop();
-            e.getActiveSound().stop();
-        }
+    /**
+     * Advances the level by exactly one tick, without updating lights.
+     *
+     * This lets replays run as fast as the simulation allows (see ReplayPlayer).
+     */
+    public void step() {
+        if (world == null) return;
+        motionSystem.savePreviousTransforms();
+        tick(timeStep);
     }
 
     /**
-     * Fixes the physics frame rate to be in sync with the animation framerate
+     * Applies the player's commands for this tick.
      *
-     * http://gafferongames.com/game-physics/fix-your-timestep/
-     *
-     * @param dt the time passed since the last frame
+     * Sprint and sneak take effect when the key is pressed or released.
      */
-    private boolean fixedStep(float dt) {
-        if (world == null) return false;
-
-        physicsTimeLeft += dt;
-        if (physicsTimeLeft > maxTimePerFrame) {
-            physicsTimeLeft = maxTimePerFrame;
+    private void applyInput() {
+        if (input.flare) {
+            createFlare(input.flareAngle);
         }
-
-        boolean stepped = false;
-        while (physicsTimeLeft >= timeStep) {
-            world.step(timeStep, WORLD_VELOC, WORLD_POSIT);
-            physicsTimeLeft -= timeStep;
-            stepped = true;
+        if (input.sprint && !sprintHeld) {
+            makeSprint();
+        } else if (!input.sprint && sprintHeld) {
+            makeWalk();
+        }
+        if (input.sneak && !sneakHeld) {
+            makeSneak();
+        } else if (!input.sneak && sneakHeld) {
+            makeWalk();
         }
-        return stepped;
+        sprintHeld = input.sprint;
+        sneakHeld = input.sneak;
+        player.move(moveCache.set(input.moveX, input.moveY));
+    }
+
+    public void stopAllSounds(){
+        if (headless) return;
+        player.getWalkSound().stop();
+        player.setPlayingSound(false);
+        soundSystem.stopAll();
     }
 
     /**
@@ -869,10 +1163,10 @@ public class LevelController implements ContactListener {
         EnemyModel ghost = new EnemyGhostModel();
         ghost.initialize(ghostJSON, getGhostStart());
         ghost.initializeTextures(ghostJSON);
-        ghost.setConstantSoundID(ghost.getConstantSound().loop(0, ENEMY_CONS_PITCH, 0));
         ghost.setDrawScale(scale);
         ghost.activatePhysics(world);
         enemies.add(ghost);
+        track(ghost, LevelEntities.enemy(ghost));
         // Create ghost controller
         AIControllers.add(new AIGhostController(enemies.size()-1, pathLevelModel, enemies, player));
     }
@@ -903,26 +1197,24 @@ public class LevelController implements ContactListener {
     }
 
     /**
-     * Launch a flare from the player towards the mouse position based on preset flareJSON data, or does nothing if the
+     * Launch a flare from the player at the given angle based on preset flareJSON data, or does nothing if the
      * player has already created the max number of flares.
-     * (Called by GameEngine)
+     * (Called when a tick applies the player's input)
      *
-     * @param mousePosition Position of mouse when flare launched
+     * @param angleRad Angle to throw the flare at
      */
-    public void createFlare(Vector2 mousePosition, Vector2 screenDimensions){
+    public void createFlare(float angleRad){
         if (player.getFlareCount() > 0) {
             player.throwFlare();
             FlareModel flare = new FlareModel(player.getFireBuddyPosition());
             flare.setDrawScale(scale);
             flare.initialize(flareJSON);
             flare.activatePhysics(world);
-            Vector2 centerScreenPosition = new Vector2((screenDimensions.x) / 2, (screenDimensions.y) / 2);
-            Vector2 posDif = new Vector2(mousePosition.x - centerScreenPosition.x, mousePosition.y - centerScreenPosition.y);
-            float angleRad = posDif.angleRad(new Vector2(1, 0));
             Vector2 force = (new Vector2(flare.getInitialForce(), 0)).rotateRad(angleRad);
             flare.applyInitialForce(angleRad, force);
-            flare.getShotSound().play(PLAYER_FLARE_VOL);
+            if (!headless) flare.getShotSound().play(PLAYER_FLARE_VOL);
             flares.add(flare);
+            track(flare, LevelEntities.flare(flare));
             assert inBounds(flare);
             player.decFlareCount();
         }
@@ -931,7 +1223,7 @@ public class LevelController implements ContactListener {
     /**
      * Fires a bullet from an enemy
      */
-    public void fireWeapon(EnemyTypeBModel enemy) {
+    public void fireWeapon(EnemyModel enemy) {
         Vector2 enemyPos = enemy.getPosition();
         FireballModel fireball = new FireballModel(enemyPos);
         fireball.setDrawScale(scale);
@@ -942,6 +1234,7 @@ public class LevelController implements ContactListener {
         posDif.setLength(fireball.getSpeed());
         fireball.setLinearVelocity(posDif);
         fireballs.add(fireball);
+        track(fireball, LevelEntities.fireball(fireball));
         enemy.coolDown(false);
         assert inBounds(fireball);
     }
@@ -949,7 +1242,7 @@ public class LevelController implements ContactListener {
     /**
      * Change the player's movement to sprint
      * Store current light radius in lightRadiusSaved and change light radius to lightRadiusSprint
-     * (Called by GameEngine)
+     * (Called by applyInput)
      */
     public void makeSprint(){
         player.setLightRadiusSprint();
@@ -959,7 +1252,7 @@ public class LevelController implements ContactListener {
     /**
      * Change the player's movement to walk
      * Set to walk and restore light radius to what it was before sprinting, which is in lightRadiusSaved
-     * (Called by GameEngine)
+     * (Called by applyInput)
      */
     public void makeWalk(){
         player.setLightRadiusWalk();
@@ -969,7 +1262,7 @@ public class LevelController implements ContactListener {
     /**
      * Change the player's movement to sneak
      * Store current light radius in lightRadiusSaved and change light radius to lightRadiusSneak
-     * (Called by GameEngine)
+     * (Called by applyInput)
      */
     public void makeSneak(){
         player.setLightRadiusSneak();
@@ -986,8 +1279,14 @@ public class LevelController implements ContactListener {
      */
     public void draw(GameCanvas canvas, float delta, BitmapFont displayFont) {
         canvas.clear();
+        // Draw everything between the last two simulation ticks
+        motionSystem.beginInterpolation(renderAlpha);
         canvas.setCameraPosition(player.getPosition().x * scale.x, player.getPosition().y * scale.y);
 
+        // Only what overlaps the camera is drawn
+        view.set(canvas.getCamera().position.x - canvas.getWidth() / 2f,
+                canvas.getCamera().position.y - canvas.getHeight() / 2f, canvas.getWidth(), canvas.getHeight());
+
         canvas.begin();
         //draw background
         if (background != null) {
@@ -996,27 +1295,9 @@ public class LevelController implements ContactListener {
         }
 
         // Things that should always be drawn in background
-        for(ExtraModel extra : extras){
-            extra.draw(canvas);
-        }
-        exit.draw(canvas);
-        for(ItemModel item : items){
-            item.draw(canvas);
-        }
-
-        // Draw all objects that are dynamically ordered
-        List<Obstacle> toBeDrawn = new LinkedList<>();
-        toBeDrawn.addAll(walls);
-        toBeDrawn.addAll(trees);
-        toBeDrawn.addAll(enemies);
-        toBeDrawn.addAll(flares);
-        toBeDrawn.addAll(fireballs);
-        toBeDrawn.add(player);
-        // Bigger Y = draw first.
-        toBeDrawn.sort((a, b) -> -Float.compare(a.getY(), b.getY()));
-        for (Obstacle o : toBeDrawn) {
-            o.draw(canvas);
-        }
+        renderSystem.drawGround(canvas, view);
+        // Draw all objects that are dynamically ordered (bigger Y = draw first)
+        renderSystem.drawSorted(canvas, view);
         canvas.end();
 
         lightController.setDebug(debug2);
@@ -1030,29 +1311,7 @@ public class LevelController implements ContactListener {
         // Draw debugging on top of everything.
         if (debug == 1) {
             canvas.beginDebug();
-            player.drawDebug(canvas);
-            exit.drawDebug(canvas);
-            for(WallModel wall : walls) {
-                wall.drawDebug(canvas);
-            }
-            for(TreeModel tree : trees) {
-                tree.drawDebug(canvas);
-            }
-            for(FlareModel flare : flares) {
-                flare.drawDebug(canvas);
-            }
-            for(EnemyModel enemy : enemies) {
-                enemy.drawDebug(canvas);
-            }
-            for(FireballModel fireball: fireballs){
-                fireball.drawDebug(canvas);
-            }
-            for(ItemModel item : items) {
-                item.drawDebug(canvas);
-            }
-            for(ExtraModel extra : extras) {
-                extra.drawDebug(canvas);
-            }
+            renderSystem.drawDebug(canvas);
             canvas.endDebug();
             if(ticks % 10 == 0){
                 fps = 1/delta;
@@ -1060,6 +1319,10 @@ public class LevelController implements ContactListener {
             displayFont.setColor(Color.CYAN);
             canvas.begin();
             canvas.drawText(Float.toString(fps), displayFont, 0, canvas.getHeight()/2);
+            // Fog budget: effects alive, waiting in the pool, and ever created
+            canvas.drawText("fog " + fogController.getLiveCount() + " live " + fogController.getPooledCount()
+                            + " pooled " + fogController.getAllocatedCount() + " allocated",
+                    displayFont, 0, canvas.getHeight()/2 - displayFont.getLineHeight());
             canvas.end();
             ticks++;
         } else if (debug == 2) {
@@ -1067,6 +1330,7 @@ public class LevelController implements ContactListener {
             pathLevelModel.drawDebug(canvas, scale);
             canvas.endDebug();
         }
+        motionSystem.endInterpolation();
     }
 
     /**
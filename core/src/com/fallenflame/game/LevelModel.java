@@ -2,9 +2,7 @@ package com.fallenflame.game;
 
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.math.*;
-import com.fallenflame.game.enemies.EnemyGhostModel;
 import com.fallenflame.game.enemies.EnemyModel;
-import com.fallenflame.game.enemies.EnemyTypeBModel;
 import com.fallenflame.game.physics.obstacle.BoxObstacle;
 import com.fallenflame.game.physics.obstacle.WheelObstacle;
 
@@ -47,6 +45,10 @@ public class LevelModel {
     private float width;
     /** Height of screen */
     private float height;
+    /** Where the level is lit (shared by every LevelModel of a level) */
+    private IlluminationGrid illumination;
+    /** Tiles whose player or enemy occupancy may have changed */
+    private final TileChanges changes = new TileChanges();
 
 
     public LevelModel(){ }
@@ -71,6 +73,7 @@ public class LevelModel {
         for(TreeModel t : trees) {
             setBoxObstacleInGrid(t, true, TileOccupiedBy.TREE);
         }
+        changes.markAll();
     }
 
     /**
@@ -83,6 +86,19 @@ public class LevelModel {
      */
     public float getHeight() {return this.height;}
 
+    /** @return where the level is lit */
+    public IlluminationGrid getIllumination() { return illumination; }
+
+    /**
+     * Sets where the level is lit. The grid is owned and updated by the LevelController.
+     *
+     * @param illumination the illumination grid of the level
+     */
+    public void setIllumination(IlluminationGrid illumination) { this.illumination = illumination; }
+
+    /** @return tiles whose player or enemy occupancy may have changed since the consumer last cleared them */
+    public TileChanges getChanges() { return changes; }
+
     /** @return tileSize for this level model */
     public float getTileSize() { return tileSize; }
 
@@ -109,8 +125,7 @@ public class LevelModel {
      * @param enemy
      */
     public void placeEnemy(EnemyModel enemy) {
-        setWheelObstacleInGrid(enemy, true, TileOccupiedBy.ENEMY, (enemy.getClass() == EnemyTypeBModel.class)
-                || enemy.getClass() == EnemyGhostModel.class); }
+        setWheelObstacleInGrid(enemy, true, TileOccupiedBy.ENEMY, enemy.hasLessFog()); }
 
     private void markObstacleTypeInGrid(int x, int y, boolean b, TileOccupiedBy o) {
         switch (o) {
@@ -334,10 +349,24 @@ public class LevelModel {
                tileGrid[x][y].player = false;
             }
         }
+        changes.beginStamps();
         placePlayer(p);
+        stampFootprint(p);
         for (EnemyModel e : em) {
             placeEnemy(e);
+            stampFootprint(e);
         }
+        changes.endStamps();
+    }
+
+    /**
+     * Records the tiles covered by a WheelObstacle this update, so that tiles it left or entered count as changed.
+     * @param obs Wheel obstacle
+     */
+    private void stampFootprint(WheelObstacle obs) {
+        boolean lessFog = obs instanceof EnemyModel && ((EnemyModel) obs).hasLessFog();
+        changes.stamp(screenToTile(obs.getX() - obs.getRadius()), screenToTile(obs.getY() - obs.getRadius()),
+                screenToTile(obs.getX() + obs.getRadius()), screenToTile(obs.getY() + obs.getRadius()), lessFog ? 1 : 0);
     }
 
     public void drawDebug(GameCanvas canvas, Vector2 drawScale) {
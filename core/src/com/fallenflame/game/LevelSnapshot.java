@@ -0,0 +1,84 @@
+package com.fallenflame.game;
+
+import com.fallenflame.game.enemies.AIController;
+import com.fallenflame.game.enemies.EnemyModel;
+import com.fallenflame.game.physics.obstacle.SimpleObstacle;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A copy of the simulated state of a level at a single point in time.
+ *
+ * Snapshots are taken with LevelController.snapshot() and applied with
+ * LevelController.restore().  They hold references to the models of the level
+ * that created them, so they can only be restored into that same level.
+ */
+public class LevelSnapshot {
+    /** The level this snapshot was taken from */
+    final LevelController level;
+
+    // Which models were in the level
+    final List<EnemyModel> enemies;
+    final List<AIController> controllers;
+    final List<FlareModel> flares;
+    final List<FireballModel> fireballs;
+    final List<ItemModel> items;
+    final HashSet<ItemModel> itemContacts;
+
+    /** State of every moving model (player, enemies, flares, fireballs and items) */
+    final Map<SimpleObstacle, SimpleObstacle.ObstacleState> obstacleStates = new HashMap<>();
+    /** State of every AI controller */
+    final Map<AIController, AIController.ControllerState> controllerStates = new HashMap<>();
+
+    // Level state
+    final boolean ghostAdded;
+    final LevelController.LevelState levelState;
+    final long tickCount;
+
+    // Held keys (sprint and sneak act on press and release)
+    final boolean sprintHeld;
+    final boolean sneakHeld;
+
+    /**
+     * Creates a snapshot of the given level.  Called by LevelController.snapshot().
+     */
+    LevelSnapshot(LevelController level, PlayerModel player, List<EnemyModel> enemies,
+                  List<AIController> controllers, List<FlareModel> flares, List<FireballModel> fireballs,
+                  List<ItemModel> items, HashSet<ItemModel> itemContacts,
+                  boolean ghostAdded, LevelController.LevelState levelState, long tickCount,
+                  boolean sprintHeld, boolean sneakHeld) {
+        this.level = level;
+        this.enemies = new ArrayList<>(enemies);
+        this.controllers = new ArrayList<>(controllers);
+        this.flares = new ArrayList<>(flares);
+        this.fireballs = new ArrayList<>(fireballs);
+        this.items = new ArrayList<>(items);
+        this.itemContacts = new HashSet<>(itemContacts);
+        this.ghostAdded = ghostAdded;
+        this.levelState = levelState;
+        this.tickCount = tickCount;
+        this.sprintHeld = sprintHeld;
+        this.sneakHeld = sneakHeld;
+
+        obstacleStates.put(player, player.saveState());
+        for (EnemyModel enemy : enemies) {
+            obstacleStates.put(enemy, enemy.saveState());
+        }
+        for (FlareModel flare : flares) {
+            obstacleStates.put(flare, flare.saveState());
+        }
+        for (FireballModel fireball : fireballs) {
+            obstacleStates.put(fireball, fireball.saveState());
+        }
+        for (ItemModel item : items) {
+            obstacleStates.put(item, item.saveState());
+        }
+        for (AIController controller : controllers) {
+            controllerStates.put(controller, controller.saveState());
+        }
+    }
+}
@@ -6,19 +6,26 @@ import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.graphics.OrthographicCamera;
 import com.badlogic.gdx.math.Rectangle;
 import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.physics.box2d.Body;
+import com.badlogic.gdx.physics.box2d.BodyDef;
 import com.badlogic.gdx.physics.box2d.Filter;
+import com.badlogic.gdx.physics.box2d.FixtureDef;
+import com.badlogic.gdx.physics.box2d.PolygonShape;
 import com.badlogic.gdx.physics.box2d.World;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.IntMap;
 import com.badlogic.gdx.utils.JsonValue;
+import com.badlogic.gdx.utils.ObjectFloatMap;
 import com.fallenflame.game.enemies.EnemyModel;
 import com.fallenflame.game.physics.lights.PointSource;
+import com.fallenflame.game.physics.lights.VisibilitySource;
+import com.fallenflame.game.physics.obstacle.BoxObstacle;
 import com.fallenflame.game.physics.obstacle.Obstacle;
 
-import java.util.Collection;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Set;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.logging.Logger;
-import java.util.stream.Collectors;
 
 /**
  * {@code LightController} manages and renders the light effect of the game.
@@ -42,6 +49,51 @@ public class LightController {
      */
     private static final int RAYS = 512;
 
+    /** The fewest rays a light is given (used for lights that are off screen) */
+    private static final int MIN_RAYS = 32;
+
+    /** Default number of pixels along a light's rim covered by each ray */
+    private static final float DEFAULT_RAY_SPACING = 4f;
+
+    /** Default number of rays that all lights may cast in a frame */
+    private static final int DEFAULT_RAY_BUDGET = 4096;
+
+    /**
+     * A light is only rebuilt with fewer rays once it needs less than this fraction of its current rays. This keeps
+     * lights with animated radii from being rebuilt back and forth across a tier boundary.
+     */
+    private static final float RAY_DOWNGRADE_RATIO = 0.4f;
+
+    /** Default distance (in world units) around the camera view within which lights are kept active */
+    private static final float DEFAULT_CULL_MARGIN = 2f;
+
+    /** Changes smaller than this (in world units) do not disturb a static light */
+    private static final float STATIC_LIGHT_EPSILON = 0.001f;
+
+    /** Default fraction of the screen resolution the light map is rendered at */
+    public static final float DEFAULT_LIGHT_MAP_SCALE = 1f;
+
+    /** Default number of blur passes over the light map */
+    public static final int DEFAULT_BLUR_PASSES = 3;
+
+    /**
+     * Fraction of the screen resolution the light map is rendered at. It is upsampled (with linear filtering) when
+     * composited, so lower values trade light sharpness for fill rate. Shared by every level.
+     */
+    private static float lightMapScale = DEFAULT_LIGHT_MAP_SCALE;
+
+    /** Number of blur passes over the light map (0 to turn blur off). Shared by every level. */
+    private static int blurPasses = DEFAULT_BLUR_PASSES;
+
+    /** Default number of frames between updates of a moving light that is out of view */
+    private static final int DEFAULT_FAR_UPDATE_INTERVAL = 4;
+
+    /** Collision category of occluder fixtures (and mask of lights when occlusion is on) */
+    private static final short OCCLUDER_BITS = 0x0001;
+
+    /** Gap (in world units) below which two occluder boxes are considered to touch */
+    private static final float OCCLUDER_EPSILON = 0.001f;
+
     /**
      * A cached copy of player model.
      */
@@ -66,24 +118,30 @@ public class LightController {
     protected PointSource playerLight;
 
     /**
-     * A map of lights for all the flares.
+     * The lights of all the flares.
      */
-    protected Map<FlareModel, PointSource> flareLights;
+    protected LightRegistry<FlareModel> flareLights;
 
     /**
-     * A map of fireball lights for all the fireballs.
+     * The fireball lights for all the fireballs.
      */
-    protected Map<FireballModel, PointSource> fireballLights;
+    protected LightRegistry<FireballModel> fireballLights;
 
     /**
-     * A map of item lights for all the items.
+     * The item lights for all the items.
      */
-    protected Map<ItemModel, PointSource> itemLights;
+    protected LightRegistry<ItemModel> itemLights;
 
     /**
-     * A map of lights for all the enemies.
+     * The lights of all the (activated) enemies.
      */
-    protected Map<EnemyModel, PointSource> enemyLights;
+    protected LightRegistry<EnemyModel> enemyLights;
+
+    /**
+     * Number of times the lights have been updated. Emitters are stamped with this when seen, so lights whose
+     * emitter was not seen in the current update can be removed.
+     */
+    protected int lightGeneration;
 
     /**
      * Camera viewport for the light.
@@ -95,8 +153,17 @@ public class LightController {
      */
     protected RayHandler rayhandler;
 
-    protected Map<PointSource, Float> animateIn;
-    protected Map<PointSource, Float> animateOut;
+    protected ObjectFloatMap<PointSource> animateIn;
+    protected ObjectFloatMap<PointSource> animateOut;
+
+    /**
+     * Lights that have faded out, by number of rays, ready to be reused. Building a light allocates its ray arrays
+     * and meshes, so lights are recycled instead of disposed.
+     */
+    protected IntMap<Array<PointSource>> lightPool;
+
+    /** Enemies that are activated this frame (reused to avoid allocating every frame) */
+    private final List<EnemyModel> activatedEnemies = new ArrayList<>();
     protected int animateTicks;
 
     private float targetPlayerRadius;
@@ -107,20 +174,92 @@ public class LightController {
 
     protected static final int DEFAULT_ANIMATE_TICKS = 9;
 
+    /** Pixels along a light's rim covered by each ray */
+    protected float raySpacing;
+
+    /** Number of rays that all lights may cast in a frame */
+    protected int rayBudget;
+
+    /** Distance (in world units) around the camera view within which lights are kept active */
+    protected float cullMargin;
+
+    /** Whether the exit light is static (raycast once, then reused until it changes) */
+    protected boolean staticExit;
+
+    /** Whether item lights are static (raycast once, then reused until they change) */
+    protected boolean staticItems;
+
+    /**
+     * Whether every light is only raycast again when its position, radius or color changed. Otherwise only the
+     * static lights are, and the rest are raycast every frame.
+     */
+    protected boolean dirtyTracking;
+
+    /** Number of frames between updates of a moving light whose circle is out of view (1 to update every frame) */
+    protected int farUpdateInterval;
+
+    /** Number of lights that changed (and so will be raycast again) in the last update */
+    protected int changedLights;
+
+    /** Whether walls and trees block light */
+    protected boolean occlusion;
+
+    /**
+     * The world light rays are cast in. It only holds merged wall and tree boxes (none if occlusion is off), so a
+     * ray never has to test characters, flares or anything else in the gameplay world.
+     */
+    protected World occluderWorld;
+
+    /**
+     * Whether lights compute their shadows with an angular sweep over the occluder edges (VisibilitySource) instead
+     * of raycasting the occluder world. Only used when occlusion is on.
+     */
+    protected boolean visibility;
+
+    /** Distance (in world units) a visibility light may move before its shadows are recomputed */
+    protected float visibilityThreshold;
+
+    /** Edges of the occluder boxes, as x1, y1, x2, y2, for visibility lights */
+    protected float[] occluderSegments = new float[0];
+
+    /** Number of floats in use in occluderSegments */
+    protected int occluderSegmentCount;
+
     /**
      * Initialise this controller.
      *
      * @param player The player instance.
      * @param levelLighting The lighting JSON config of this level.
-     * @param world The instance of Box2D {@code World}.
+     * @param walls The walls of the level (which may block light).
+     * @param trees The trees of the level (which may block light).
      * @param scale Scale for rendering.
      */
 
-    public void initialize(PlayerModel player, ExitModel exit,
-                           JsonValue levelLighting, World world, Rectangle bounds, Vector2 scale) {
-        animateIn = new HashMap<>();
-        animateOut = new HashMap<>();
+    public void initialize(PlayerModel player, ExitModel exit, JsonValue levelLighting,
+                           List<WallModel> walls, List<TreeModel> trees, Rectangle bounds, Vector2 scale) {
+        animateIn = new ObjectFloatMap<>();
+        animateOut = new ObjectFloatMap<>();
+        lightPool = new IntMap<>();
         animateTicks = levelLighting.has("animateTicks") ? levelLighting.get("animateTicks").asInt() : DEFAULT_ANIMATE_TICKS;
+        raySpacing = levelLighting.has("raySpacing") ? levelLighting.get("raySpacing").asFloat() : DEFAULT_RAY_SPACING;
+        rayBudget = levelLighting.has("rayBudget") ? levelLighting.get("rayBudget").asInt() : DEFAULT_RAY_BUDGET;
+        cullMargin = levelLighting.has("cullMargin") ? levelLighting.get("cullMargin").asFloat() : DEFAULT_CULL_MARGIN;
+        // Lights that never move can be baked. The exit is static unless the level says otherwise.
+        staticExit = true;
+        staticItems = false;
+        if (levelLighting.has("static")) {
+            List<String> staticLights = Arrays.asList(levelLighting.get("static").asStringArray());
+            staticExit = staticLights.contains("exit");
+            staticItems = staticLights.contains("items");
+        }
+        // Occluders never move, so a light only needs raycasting again when it changes.
+        dirtyTracking = levelLighting.getBoolean("dirtyTracking", true);
+        farUpdateInterval = Math.max(1, levelLighting.getInt("farUpdateInterval", DEFAULT_FAR_UPDATE_INTERVAL));
+        occlusion = levelLighting.getBoolean("occlusion", false);
+        visibility = occlusion && levelLighting.getBoolean("visibility", false);
+        visibilityThreshold = levelLighting.getFloat("visibilityThreshold", VisibilitySource.DEFAULT_THRESHOLD);
+        occluderSegmentCount = 0;
+        this.scale = scale.x;
 
         // Set up camera first.
         raycamera = new OrthographicCamera(
@@ -130,10 +269,14 @@ public class LightController {
         // set up ray handler.
         RayHandler.setGammaCorrection(true);
         RayHandler.useDiffuseLight(true);
-        rayhandler = new RayHandler(world, Gdx.graphics.getWidth(), Gdx.graphics.getHeight());
+        occluderWorld = new World(Vector2.Zero, false);
+        if (occlusion) createOccluders(walls, trees);
+        rayhandler = new RayHandler(occluderWorld,
+                Math.max(1, Math.round(Gdx.graphics.getWidth() * lightMapScale)),
+                Math.max(1, Math.round(Gdx.graphics.getHeight() * lightMapScale)));
         rayhandler.setAmbientLight(0, 0, 0, AMBIENT_LIGHT);
-        rayhandler.setBlur(true);
-        rayhandler.setBlurNum(3);
+        rayhandler.setBlur(blurPasses > 0);
+        rayhandler.setBlurNum(Math.max(1, blurPasses));
         updateCamera();
 
         // Save player and config.
@@ -147,12 +290,59 @@ public class LightController {
 
         // Create exit light.
         exitLight = createPointLight(exit.getLightRadius(), exit.getX(), exit.getY());
+        exitLight.setStaticLight(dirtyTracking || staticExit);
 
         // Create empty maps for flare, fireball and enemy lights.
-        this.flareLights = new HashMap<>();
-        this.itemLights = new HashMap<>();
-        this.fireballLights = new HashMap<>();
-        this.enemyLights = new HashMap<>();
+        this.flareLights = new LightRegistry<>();
+        this.itemLights = new LightRegistry<>();
+        this.fireballLights = new LightRegistry<>();
+        this.enemyLights = new LightRegistry<>();
+    }
+
+    /**
+     * Sets the quality of the light map for levels initialized from now on.
+     *
+     * @param scale Fraction of the screen resolution to render the light map at (0 to 1].
+     * @param blur Number of blur passes over the light map (0 to turn blur off).
+     */
+    public static void setQuality(float scale, int blur) {
+        lightMapScale = Math.min(1, Math.max(0.05f, scale));
+        blurPasses = Math.max(0, blur);
+    }
+
+    /**
+     * Sets the quality of the light map from a preset: "low", "medium" or "high" (the default).
+     *
+     * @param preset The name of the preset.
+     */
+    public static void setQuality(String preset) {
+        if (preset.equals("low")) {
+            setQuality(0.25f, 1);
+        } else if (preset.equals("medium")) {
+            setQuality(0.5f, 2);
+        } else if (preset.equals("high")) {
+            setQuality(DEFAULT_LIGHT_MAP_SCALE, DEFAULT_BLUR_PASSES);
+        } else {
+            log.warning("Unknown light quality " + preset);
+        }
+    }
+
+    /**
+     * Returns the fraction of the screen resolution the light map is rendered at.
+     *
+     * @return The light map scale.
+     */
+    public static float getLightMapScale() {
+        return lightMapScale;
+    }
+
+    /**
+     * Returns the number of blur passes over the light map.
+     *
+     * @return The number of blur passes.
+     */
+    public static int getBlurPasses() {
+        return blurPasses;
     }
 
     public boolean getDebug() {
@@ -180,85 +370,497 @@ public class LightController {
         this.fireballLights = null;
         this.enemyLights.clear();
         this.enemyLights = null;
+        this.lightPool.clear();
+        this.lightPool = null;
+        this.occluderWorld.dispose();
+        this.occluderWorld = null;
+    }
+
+    /**
+     * Fills the occluder world with the walls and trees of the level.
+     *
+     * Touching boxes of the same height in a row are merged, then touching boxes of the same width in a column,
+     * so a solid run of wall tiles becomes a single fixture.
+     *
+     * @param walls The walls of the level.
+     * @param trees The trees of the level.
+     */
+    protected void createOccluders(List<WallModel> walls, List<TreeModel> trees) {
+        List<Rectangle> boxes = new ArrayList<>();
+        List<BoxObstacle> rotated = new ArrayList<>();
+        addOccluderBoxes(walls, boxes, rotated);
+        addOccluderBoxes(trees, boxes, rotated);
+
+        // Merge along rows, then along columns.
+        boxes.sort((a, b) -> a.y != b.y ? Float.compare(a.y, b.y) : Float.compare(a.x, b.x));
+        boxes = mergeOccluderBoxes(boxes, true);
+        boxes.sort((a, b) -> a.x != b.x ? Float.compare(a.x, b.x) : Float.compare(a.y, b.y));
+        boxes = mergeOccluderBoxes(boxes, false);
+
+        BodyDef def = new BodyDef();
+        def.type = BodyDef.BodyType.StaticBody;
+        Body body = occluderWorld.createBody(def);
+        PolygonShape shape = new PolygonShape();
+        FixtureDef fixture = new FixtureDef();
+        fixture.shape = shape;
+        fixture.filter.categoryBits = OCCLUDER_BITS;
+        Vector2 center = new Vector2();
+        occluderSegments = new float[16 * (boxes.size() + rotated.size())];
+        for (Rectangle box : boxes) {
+            shape.setAsBox(box.width / 2, box.height / 2, box.getCenter(center), 0);
+            body.createFixture(fixture);
+            addOccluderSegments(center.x, center.y, box.width / 2, box.height / 2, 0);
+        }
+        for (BoxObstacle obs : rotated) {
+            shape.setAsBox(obs.getWidth() / 2, obs.getHeight() / 2, center.set(obs.getX(), obs.getY()), obs.getAngle());
+            body.createFixture(fixture);
+            addOccluderSegments(obs.getX(), obs.getY(), obs.getWidth() / 2, obs.getHeight() / 2, obs.getAngle());
+        }
+        shape.dispose();
+        log.info("Light occluders: " + (boxes.size() + rotated.size()) + " fixtures");
+    }
+
+    /**
+     * Adds the four edges of a box to the occluder segments, counterclockwise (visibility lights skip the edges that
+     * face away from them).
+     *
+     * @param x The x coordinate of the center of the box.
+     * @param y The y coordinate of the center of the box.
+     * @param hw Half the width of the box.
+     * @param hh Half the height of the box.
+     * @param angle The angle of the box in radians.
+     */
+    private void addOccluderSegments(float x, float y, float hw, float hh, float angle) {
+        float c = (float) Math.cos(angle);
+        float s = (float) Math.sin(angle);
+        float[] corners = {-hw, -hh, hw, -hh, hw, hh, -hw, hh};
+        for (int i = 0; i < 4; i++) {
+            int a = 2 * i, b = 2 * ((i + 1) % 4);
+            occluderSegments[occluderSegmentCount++] = x + corners[a] * c - corners[a + 1] * s;
+            occluderSegments[occluderSegmentCount++] = y + corners[a] * s + corners[a + 1] * c;
+            occluderSegments[occluderSegmentCount++] = x + corners[b] * c - corners[b + 1] * s;
+            occluderSegments[occluderSegmentCount++] = y + corners[b] * s + corners[b + 1] * c;
+        }
     }
 
     /**
-     * Create a point light.
+     * Collects the boxes of a list of obstacles. Axis-aligned ones can be merged; rotated ones are kept as they are.
+     *
+     * @param obstacles The obstacles.
+     * @param boxes The list of axis-aligned boxes to add to.
+     * @param rotated The list of rotated obstacles to add to.
+     */
+    private void addOccluderBoxes(List<? extends BoxObstacle> obstacles, List<Rectangle> boxes,
+                                  List<BoxObstacle> rotated) {
+        for (BoxObstacle obs : obstacles) {
+            if (obs.getAngle() != 0) {
+                rotated.add(obs);
+                continue;
+            }
+            boxes.add(new Rectangle(obs.getX() - obs.getWidth() / 2, obs.getY() - obs.getHeight() / 2,
+                    obs.getWidth(), obs.getHeight()));
+        }
+    }
+
+    /**
+     * Merges sorted boxes that touch end to end.
+     *
+     * @param boxes The boxes, sorted by row then x (horizontal) or by column then y (vertical).
+     * @param horizontal Whether to merge along rows (otherwise along columns).
+     *
+     * @return The merged boxes.
+     */
+    private List<Rectangle> mergeOccluderBoxes(List<Rectangle> boxes, boolean horizontal) {
+        List<Rectangle> merged = new ArrayList<>();
+        Rectangle last = null;
+        for (Rectangle box : boxes) {
+            if (last != null && horizontal
+                    && Math.abs(last.y - box.y) < OCCLUDER_EPSILON
+                    && Math.abs(last.height - box.height) < OCCLUDER_EPSILON
+                    && Math.abs(last.x + last.width - box.x) < OCCLUDER_EPSILON) {
+                last.width = box.x + box.width - last.x;
+            } else if (last != null && !horizontal
+                    && Math.abs(last.x - box.x) < OCCLUDER_EPSILON
+                    && Math.abs(last.width - box.width) < OCCLUDER_EPSILON
+                    && Math.abs(last.y + last.height - box.y) < OCCLUDER_EPSILON) {
+                last.height = box.y + box.height - last.y;
+            } else {
+                last = box;
+                merged.add(box);
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * Create a point light. It starts with as many rays as its size on screen calls for; updateRayBudget() adjusts
+     * this every frame.
      *
      * @param dist The distance of the light.
      *
      * @return The {@code PointSource} instance.
      */
     protected PointSource createPointLight(float dist, float x, float y) {
-        // Create point source.
-        PointSource p = new PointSource(rayhandler, RAYS, Color.WHITE, dist, x, y);
+        return createPointLight(toRayTier(raysForDistance(dist)), dist, x, y);
+    }
+
+    /**
+     * Create a point light with the given number of rays.
+     *
+     * @param rays The number of rays of the light.
+     * @param dist The distance of the light.
+     *
+     * @return The {@code PointSource} instance.
+     */
+    protected PointSource createPointLight(int rays, float dist, float x, float y) {
+        // Reuse a pooled light with the same number of rays if there is one.
+        Array<PointSource> pooled = lightPool.get(rays);
+        if (pooled != null && pooled.size > 0) {
+            PointSource p = pooled.pop();
+            p.setColor(Color.WHITE);
+            p.setDistance(dist);
+            p.setPosition(x, y);
+            p.setStaticLight(dirtyTracking);
+            p.setActive(true);
+            return p;
+        }
+
+        // Create point source. Visibility lights take their shadows from the occluder edges instead of raycasting.
+        PointSource p;
+        if (visibility) {
+            VisibilitySource v = new VisibilitySource(rayhandler, rays, Color.WHITE, dist, x, y);
+            v.setOccluders(occluderSegments, occluderSegmentCount);
+            v.setThreshold(visibilityThreshold);
+            p = v;
+        } else {
+            p = new PointSource(rayhandler, rays, Color.WHITE, dist, x, y);
+        }
         p.setSoft(true);
 
-        // Set up filter.
+        // Set up filter. Without occlusion, nothing blocks the light.
         Filter f = new Filter();
-        f.categoryBits = f.maskBits = 0;
+        f.categoryBits = f.maskBits = occlusion ? OCCLUDER_BITS : 0;
         p.setContactFilter(f);
+        p.setStaticLight(dirtyTracking);
         p.setActive(true);
 
         return p;
     }
 
+    /**
+     * Returns a light that is no longer needed to the pool. It is deactivated until it is reused.
+     *
+     * @param light The light to free.
+     */
+    protected void freePointLight(PointSource light) {
+        light.setActive(false);
+        light.setStaticLight(false);
+        Array<PointSource> pooled = lightPool.get(light.getRayNum());
+        if (pooled == null) {
+            pooled = new Array<>();
+            lightPool.put(light.getRayNum(), pooled);
+        }
+        pooled.add(light);
+    }
+
+    /**
+     * Returns the number of rays a light of the given distance needs to look smooth on screen.
+     *
+     * @param dist The distance of the light.
+     *
+     * @return The number of rays (not yet rounded to a tier).
+     */
+    protected float raysForDistance(float dist) {
+        return (float) (2 * Math.PI * dist * scale / raySpacing);
+    }
+
+    /**
+     * Rounds a number of rays up to the next power of two, between MIN_RAYS and RAYS.
+     *
+     * @param rays The number of rays wanted.
+     *
+     * @return The number of rays to build the light with.
+     */
+    protected static int toRayTier(float rays) {
+        int tier = MIN_RAYS;
+        while (tier < rays && tier < RAYS) tier *= 2;
+        return tier;
+    }
+
+    /**
+     * Returns whether a light can be seen by the light camera.
+     *
+     * @param light The light to check.
+     * @param margin Extra distance around the camera's view to count as visible.
+     *
+     * @return Whether any part of the light is within the camera's view (plus the margin).
+     */
+    protected boolean isInView(PointSource light, float margin) {
+        float dist = light.getDistance() + margin;
+        float halfWidth = raycamera.viewportWidth / 2 + dist;
+        float halfHeight = raycamera.viewportHeight / 2 + dist;
+        return Math.abs(light.getX() - raycamera.position.x) < halfWidth
+                && Math.abs(light.getY() - raycamera.position.y) < halfHeight;
+    }
+
+    /**
+     * Returns the number of rays a light should have this frame, ignoring the budget.
+     *
+     * Culled lights cast no rays, so they want none and count nothing against the budget (they keep their tier).
+     *
+     * @param light The light to check.
+     *
+     * @return The number of rays (not yet rounded to a tier).
+     */
+    protected float wantedRays(PointSource light) {
+        if (!light.isActive()) return 0;
+        return isInView(light, 0) ? Math.max(MIN_RAYS, raysForDistance(light.getDistance())) : MIN_RAYS;
+    }
+
+    /**
+     * Rebuilds a light with a new number of rays if it needs to change tier.
+     *
+     * Box2DLights sizes a light's meshes when it is created, so the only way to change its ray count is to replace
+     * it. The replacement keeps the color, distance, position and filter of the original. Culled (inactive) lights
+     * keep their tier, so a light that leaves the view and comes back is not rebuilt twice.
+     *
+     * @param light The light to check.
+     * @param rays The number of rays the light should have (not yet rounded to a tier).
+     *
+     * @return The light to use from now on (the same light if it was not rebuilt).
+     */
+    protected PointSource retierLight(PointSource light, float rays) {
+        if (!light.isActive()) return light;
+        int tier = toRayTier(rays);
+        int current = light.getRayNum();
+        if (tier == current || (tier < current && rays >= current * RAY_DOWNGRADE_RATIO)) return light;
+
+        PointSource p = createPointLight(tier, light.getDistance(), light.getX(), light.getY());
+        p.setColor(light.getColor());
+        p.setStaticLight(light.isStaticLight());
+        p.setActive(light.isActive());
+        freePointLight(light);
+        if (animateIn.containsKey(light)) animateIn.put(p, animateIn.remove(light, 0));
+        return p;
+    }
+
+    /**
+     * Rebuilds the lights of a registry whose ray tier changed.
+     *
+     * @param registry The registry of lights.
+     * @param budgetRatio Fraction of its wanted rays each light may use.
+     */
+    protected void retierLights(LightRegistry<?> registry, float budgetRatio) {
+        for (int k = 0; k < registry.size(); k++) {
+            PointSource light = registry.getLight(k);
+            registry.setLight(k, retierLight(light, wantedRays(light) * budgetRatio));
+        }
+    }
+
+    /**
+     * Adds up the rays wanted by the lights of a registry.
+     *
+     * @param registry The registry of lights.
+     *
+     * @return The total rays wanted.
+     */
+    protected float wantedRays(LightRegistry<?> registry) {
+        float total = 0;
+        for (int k = 0; k < registry.size(); k++) {
+            total += wantedRays(registry.getLight(k));
+        }
+        return total;
+    }
+
+    /**
+     * Picks the number of rays of every light for this frame.
+     *
+     * Each light wants enough rays to keep its rim smooth at its current size on screen, and lights that are off
+     * screen get the fewest rays. If all lights together want more than the ray budget, every light but the
+     * player's is scaled down to fit. Lights that are fading out keep their rays.
+     */
+    protected void updateRayBudget() {
+        float playerRays = wantedRays(playerLight);
+        float otherRays = wantedRays(exitLight) + wantedRays(flareLights) + wantedRays(fireballLights)
+                + wantedRays(itemLights) + wantedRays(enemyLights);
+        float budgetRatio = otherRays > 0 ? Math.min(1, Math.max(0, rayBudget - playerRays) / otherRays) : 1;
+
+        playerLight = retierLight(playerLight, playerRays);
+        exitLight = retierLight(exitLight, wantedRays(exitLight) * budgetRatio);
+        retierLights(flareLights, budgetRatio);
+        retierLights(fireballLights, budgetRatio);
+        retierLights(itemLights, budgetRatio);
+        retierLights(enemyLights, budgetRatio);
+    }
+
+    /**
+     * Deactivates a light whose bounding circle is outside the camera's view (plus the cull margin), and reactivates
+     * it once it comes back.
+     *
+     * Inactive lights are skipped entirely by the rayhandler, both when raycasting and when rendering.
+     *
+     * @param light The light to cull.
+     */
+    protected void cullLight(PointSource light) {
+        boolean visible = isInView(light, cullMargin);
+        if (light.isActive() != visible) light.setActive(visible);
+    }
+
+    /**
+     * Culls every light except the player's (which is always in view) and those fading out.
+     */
+    protected void cullLights() {
+        cullLight(exitLight);
+        cullLights(flareLights);
+        cullLights(fireballLights);
+        cullLights(itemLights);
+        cullLights(enemyLights);
+    }
+
+    /**
+     * Culls every light of a registry.
+     *
+     * @param registry The registry of lights.
+     */
+    protected void cullLights(LightRegistry<?> registry) {
+        for (int k = 0; k < registry.size(); k++) {
+            cullLight(registry.getLight(k));
+        }
+    }
+
+    /**
+     * Updates a static light, touching only what changed.
+     *
+     * Box2DLights keeps the shadow mesh of a static light until one of its setters marks it dirty, so setting the
+     * same values every frame would raycast it every frame like a dynamic light. With dirty tracking on, every light
+     * is static and updated this way.
+     *
+     * @param light The static light.
+     * @param dist The distance of the light.
+     * @param color The color of the light.
+     * @param position The position of the light.
+     */
+    protected void updateStaticLight(PointSource light, float dist, Color color, Vector2 position) {
+        boolean changed = false;
+        if (Math.abs(light.getDistance() - dist) > STATIC_LIGHT_EPSILON) {
+            light.setDistance(dist);
+            changed = true;
+        }
+        if (!light.getColor().equals(color)) {
+            light.setColor(color);
+            changed = true;
+        }
+        if (Math.abs(light.getX() - position.x) > STATIC_LIGHT_EPSILON
+                || Math.abs(light.getY() - position.y) > STATIC_LIGHT_EPSILON) {
+            light.setPosition(position);
+            changed = true;
+        }
+        if (changed) changedLights++;
+    }
+
+    /**
+     * Returns whether a moving light should skip its update this frame.
+     *
+     * A light whose circle is out of view (but not yet culled) cannot be seen, so it is only updated every
+     * farUpdateInterval frames. Lights are staggered by slot so they do not all update in the same frame.
+     *
+     * @param light The light.
+     * @param slot The slot of the light in its registry.
+     *
+     * @return Whether to skip the update.
+     */
+    protected boolean isThrottled(PointSource light, int slot) {
+        return farUpdateInterval > 1 && (lightGeneration + slot) % farUpdateInterval != 0
+                && !animateIn.containsKey(light) && !isInView(light, 0);
+    }
+
+    /**
+     * Returns the number of lights that changed (and so will be raycast again) in the last update.
+     *
+     * Without dirty tracking, this only counts the static lights that changed.
+     *
+     * @return The number of lights that changed.
+     */
+    public int getChangedLightCount() {
+        return changedLights;
+    }
+
+    /**
+     * Creates, updates and removes the lights of a list of objects.
+     *
+     * Every step is a single pass over either the list or the registry, so this is linear in the number of objects.
+     *
+     * @param list The objects that should have lights.
+     * @param registry The lights of the objects.
+     * @param isStatic Whether the objects never move (so their lights can be static).
+     */
     protected <T extends Obstacle & ILight>
-    void updateLightsForList(Collection<T> list, Map<T, PointSource> lightMap) {
-        // First step: Remove lights of things that are no longer in the list.
-        Set<Map.Entry<T, PointSource>> entrySet = lightMap.entrySet();
-        entrySet.removeIf(i -> {
-            if (!list.contains(i.getKey())) {
-                PointSource l = i.getValue();
-                animateIn.remove(l);
-                animateOut.put(l, 1f);
-                return true;
+    void updateLightsForList(List<T> list, LightRegistry<T> registry, boolean isStatic) {
+        // First step: Stamp the objects that already have lights.
+        for (int k = 0; k < list.size(); k++) {
+            int slot = registry.indexOf(list.get(k));
+            if (slot >= 0) registry.touch(slot, lightGeneration);
+        }
+
+        // Second step: Remove lights of things that are no longer in the list,
+        // and update light radii for lights still there.
+        for (int k = registry.size() - 1; k >= 0; k--) {
+            PointSource light = registry.getLight(k);
+            if (registry.getGeneration(k) != lightGeneration) {
+                animateIn.remove(light, 0);
+                animateOut.put(light, 1f);
+                registry.removeIndex(k);
+                continue;
+            }
+            T model = registry.getEmitter(k);
+            flareLightOffset = (light.getDistance()/PLAYER_LIGHT_RATIO);
+            if (!isStatic && isThrottled(light, k)) continue;
+            if (isStatic || dirtyTracking) {
+                updateStaticLight(light, model.getLightRadius()+flareLightOffset,
+                        model.getLightColor(), model.getPosition());
+                continue;
             }
-            return false;
-        });
-
-        // Second step: Update light radii for lights already there.
-        for (Map.Entry<T, PointSource> entry : entrySet) {
-           flareLightOffset = (entry.getValue().getDistance()/PLAYER_LIGHT_RATIO);
-            entry.getValue().setDistance(entry.getKey().getLightRadius()+flareLightOffset);
-            entry.getValue().setColor(entry.getKey().getLightColor());
-            entry.getValue().setPosition(entry.getKey().getPosition());
+            light.setDistance(model.getLightRadius()+flareLightOffset);
+            light.setColor(model.getLightColor());
+            light.setPosition(model.getPosition());
         }
 
         // Last step: Create lights for new things in the list.
-        list.stream().filter(i -> !lightMap.containsKey(i)).forEach(i -> {
+        for (int k = 0; k < list.size(); k++) {
+            T i = list.get(k);
+            if (registry.indexOf(i) >= 0) continue;
             PointSource f = createPointLight(i.getLightRadius()+flareLightOffset, i.getX(), i.getY());
             f.setColor(i.getLightColor());
-            lightMap.put(i, f);
+            f.setStaticLight(dirtyTracking || isStatic);
+            registry.add(i, f, lightGeneration);
             animateIn.put(f, 0f);
-        });
+        }
     }
 
     protected void doAnimation() {
         float i = 1f / animateTicks;
-        for (Map.Entry<PointSource, Float> e : animateIn.entrySet()) {
-            e.getKey().setDistance(e.getValue() * e.getKey().getDistance());
-            animateIn.put(e.getKey(), e.getValue() + i);
-        }
-        animateIn.values().removeIf((e) -> e >= 1);
-        for (Map.Entry<PointSource, Float> e : animateOut.entrySet()) {
-            e.getKey().setDistance(e.getKey().getDistance() / e.getValue() * (e.getValue() - i));
-            if (e.getValue() <= i) {
-                e.getKey().setActive(false);
-                e.getKey().dispose();
-                animateOut.remove(e.getKey());
-                continue;
+        ObjectFloatMap.Entries<PointSource> entries = animateIn.entries();
+        while (entries.hasNext()) {
+            ObjectFloatMap.Entry<PointSource> e = entries.next();
+            e.key.setDistance(e.value * e.key.getDistance());
+            if (e.value + i >= 1) {
+                entries.remove();
+            } else {
+                animateIn.put(e.key, e.value + i);
             }
-            animateOut.put(e.getKey(), e.getValue() - i);
         }
-        animateOut.entrySet().removeIf((e) -> {
-            if (e.getValue() <= i) {
-                e.getKey().setActive(false);
-                e.getKey().dispose();
-                return true;
+        // Lights that finish fading out go back to the pool.
+        entries = animateOut.entries();
+        while (entries.hasNext()) {
+            ObjectFloatMap.Entry<PointSource> e = entries.next();
+            e.key.setDistance(e.key.getDistance() / e.value * (e.value - i));
+            if (e.value <= i) {
+                freePointLight(e.key);
+                entries.remove();
+            } else {
+                animateOut.put(e.key, e.value - i);
             }
-            return false;
-        });
+        }
        float pLightCurrDist = playerLight.getDistance();
        if (pLightCurrDist + playerLightOffset != targetPlayerRadius) {
            playerLightOffset = (player.getLightRadius()/PLAYER_LIGHT_RATIO);
@@ -281,11 +883,11 @@ public class LightController {
     /**
      * Update all lights, call this before {@code draw()}.
      *
-     * @param flares A collection of flares.
-     * @param enemies A collection of enemies.
+     * @param flares A list of flares.
+     * @param enemies A list of enemies.
      */
-    public void updateLights(Collection<FlareModel> flares, Collection<EnemyModel> enemies,
-                             Collection<FireballModel> fireballs, Collection<ItemModel> items) {
+    public void updateLights(List<FlareModel> flares, List<EnemyModel> enemies,
+                             List<FireballModel> fireballs, List<ItemModel> items) {
         // Update debug.
         if (debug) {
             rayhandler.setAmbientLight(.5f, .5f, .5f, 0);
@@ -296,20 +898,30 @@ public class LightController {
         updateCamera();
 
         // Update player light.
+        changedLights = 0;
         targetPlayerRadius = player.getLightRadius();
-        playerLight.setPosition(player.getTextureX(), player.getTextureY());
+        if (Math.abs(playerLight.getX() - player.getTextureX()) > STATIC_LIGHT_EPSILON
+                || Math.abs(playerLight.getY() - player.getTextureY()) > STATIC_LIGHT_EPSILON) {
+            playerLight.setPosition(player.getTextureX(), player.getTextureY());
+            changedLights++;
+        }
 
         // Update flare lights.
-        updateLightsForList(flares, flareLights);
-        updateLightsForList(fireballs, fireballLights);
-        updateLightsForList(items, itemLights);
+        lightGeneration++;
+        updateLightsForList(flares, flareLights, false);
+        updateLightsForList(fireballs, fireballLights, false);
+        updateLightsForList(items, itemLights, staticItems);
 
         // Update enemy lights.
-        updateLightsForList(
-                enemies.stream().filter(EnemyModel::isActivated).collect(Collectors.toList()),
-                enemyLights);
+        activatedEnemies.clear();
+        for (int k = 0; k < enemies.size(); k++) {
+            if (enemies.get(k).isActivated()) activatedEnemies.add(enemies.get(k));
+        }
+        updateLightsForList(activatedEnemies, enemyLights, false);
 
         doAnimation();
+        cullLights();
+        updateRayBudget();
         rayhandler.update();
     }
 
@@ -0,0 +1,138 @@
+package com.fallenflame.game;
+
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.ObjectIntMap;
+import com.fallenflame.game.physics.lights.PointSource;
+
+/**
+ * {@code LightRegistry} keeps the lights of one kind of emitter (flares, enemies, ...) for {@code LightController}.
+ *
+ * Emitters and their lights are stored in dense slots, with an index from emitter to slot. Each slot remembers the
+ * generation (update pass) in which its emitter was last seen, so lights whose emitters are gone can be found in a
+ * single pass over the slots instead of searching the emitter list for every light.
+ *
+ * Nothing is allocated once the registry has grown to the number of emitters in the level.
+ *
+ * @param <T> The type of emitter.
+ */
+public class LightRegistry<T> {
+    /** Slot of each emitter */
+    private final ObjectIntMap<T> slots = new ObjectIntMap<>();
+    /** Emitter of each slot */
+    private final Array<T> emitters = new Array<>();
+    /** Light of each slot */
+    private final Array<PointSource> lights = new Array<>();
+    /** Generation in which the emitter of each slot was last seen */
+    private final IntArray generations = new IntArray();
+
+    /**
+     * Returns the number of emitters with lights.
+     *
+     * @return The number of emitters with lights.
+     */
+    public int size() { return emitters.size; }
+
+    /**
+     * Returns the slot of an emitter.
+     *
+     * @param emitter The emitter.
+     *
+     * @return The slot of the emitter, or -1 if it has no light.
+     */
+    public int indexOf(T emitter) { return slots.get(emitter, -1); }
+
+    /**
+     * Returns the emitter in a slot.
+     *
+     * @param slot The slot.
+     *
+     * @return The emitter in the slot.
+     */
+    public T getEmitter(int slot) { return emitters.get(slot); }
+
+    /**
+     * Returns the light in a slot.
+     *
+     * @param slot The slot.
+     *
+     * @return The light in the slot.
+     */
+    public PointSource getLight(int slot) { return lights.get(slot); }
+
+    /**
+     * Replaces the light in a slot.
+     *
+     * @param slot The slot.
+     * @param light The new light.
+     */
+    public void setLight(int slot, PointSource light) { lights.set(slot, light); }
+
+    /**
+     * Returns the generation in which the emitter of a slot was last seen.
+     *
+     * @param slot The slot.
+     *
+     * @return The generation the emitter was last seen in.
+     */
+    public int getGeneration(int slot) { return generations.get(slot); }
+
+    /**
+     * Marks the emitter of a slot as seen in the given generation.
+     *
+     * @param slot The slot.
+     * @param generation The current generation.
+     */
+    public void touch(int slot, int generation) { generations.set(slot, generation); }
+
+    /**
+     * Adds an emitter and its light.
+     *
+     * @param emitter The emitter (which must not have a light yet).
+     * @param light The light of the emitter.
+     * @param generation The current generation.
+     *
+     * @return The slot of the emitter.
+     */
+    public int add(T emitter, PointSource light, int generation) {
+        int slot = emitters.size;
+        slots.put(emitter, slot);
+        emitters.add(emitter);
+        lights.add(light);
+        generations.add(generation);
+        return slot;
+    }
+
+    /**
+     * Removes the emitter in a slot. The last slot is moved into its place, so iterate backwards when removing.
+     *
+     * @param slot The slot.
+     *
+     * @return The light of the removed emitter.
+     */
+    public PointSource removeIndex(int slot) {
+        PointSource light = lights.get(slot);
+        slots.remove(emitters.get(slot), -1);
+        int last = emitters.size - 1;
+        if (slot != last) {
+            emitters.set(slot, emitters.get(last));
+            lights.set(slot, lights.get(last));
+            generations.set(slot, generations.get(last));
+            slots.put(emitters.get(slot), slot);
+        }
+        emitters.removeIndex(last);
+        lights.removeIndex(last);
+        generations.removeIndex(last);
+        return light;
+    }
+
+    /**
+     * Removes all emitters.
+     */
+    public void clear() {
+        slots.clear();
+        emitters.clear();
+        lights.clear();
+        generations.clear();
+    }
+}
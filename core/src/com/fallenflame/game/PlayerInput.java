@@ -0,0 +1,49 @@
+package com.fallenflame.game;
+
+/**
+ * The player's commands for a single simulation tick.
+ *
+ * GameEngine fills this in from the keyboard and mouse every frame and hands it to
+ * LevelController, which applies it at the start of each tick.  Because it is the
+ * only input to the simulation it is also what replays record.
+ */
+public class PlayerInput {
+    /** Horizontal movement (-1, 0 or 1) */
+    public float moveX;
+    /** Vertical movement (-1, 0 or 1) */
+    public float moveY;
+    /** Whether a flare was thrown this tick */
+    public boolean flare;
+    /** Angle (in radians) the flare was thrown at */
+    public float flareAngle;
+    /** Whether the sprint key is held */
+    public boolean sprint;
+    /** Whether the sneak key is held */
+    public boolean sneak;
+
+    /**
+     * Copies the given input into this one
+     *
+     * @param other the input to copy
+     * @return this input, for chaining
+     */
+    public PlayerInput set(PlayerInput other) {
+        moveX = other.moveX;
+        moveY = other.moveY;
+        flare = other.flare;
+        flareAngle = other.flareAngle;
+        sprint = other.sprint;
+        sneak = other.sneak;
+        return this;
+    }
+
+    /**
+     * Clears all commands, leaving the player standing still.
+     */
+    public void clear() {
+        moveX = moveY = 0;
+        flare = false;
+        flareAngle = 0;
+        sprint = sneak = false;
+    }
+}
@@ -3,6 +3,7 @@ package com.fallenflame.game;
 import com.badlogic.gdx.audio.Sound;
 import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.math.Rectangle;
 import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.utils.JsonValue;
 import com.fallenflame.game.util.FilmStrip;
@@ -509,6 +510,85 @@ public class PlayerModel extends CharacterModel {
 
     }
 
+    /**
+     * The simulated state of the player: resources, life state and fire buddy animation.
+     */
+    protected static class PlayerState extends CharacterState {
+        private LifeState life;
+        private int flareCount;
+        private float powerVal;
+        private float lightRadius;
+        private boolean throwing;
+        private int deathDelay;
+        private int winDelay;
+        private float fireBuddyCool;
+        private FilmStrip fireBuddyFilmstrip;
+        private int fireBuddyFrame;
+        private int deathFrameLeft;
+        private int deathFrameRight;
+    }
+
+    @Override
+    protected ObstacleState createState() {
+        return new PlayerState();
+    }
+
+    @Override
+    protected void writeState(ObstacleState state) {
+        super.writeState(state);
+        PlayerState s = (PlayerState) state;
+        s.life = life;
+        s.flareCount = flareCount;
+        s.powerVal = powerVal;
+        s.lightRadius = lightRadius;
+        s.throwing = throwing;
+        s.deathDelay = deathDelay;
+        s.winDelay = winDelay;
+        s.fireBuddyCool = fireBuddyCool;
+        s.fireBuddyFilmstrip = fireBuddyFilmstrip;
+        s.fireBuddyFrame = fireBuddyFilmstrip != null ? fireBuddyFilmstrip.getFrame() : 0;
+        s.deathFrameLeft = deathFilmstripLeft != null ? deathFilmstripLeft.getFrame() : 0;
+        s.deathFrameRight = deathFilmstripRight != null ? deathFilmstripRight.getFrame() : 0;
+    }
+
+    @Override
+    public void restoreState(ObstacleState state) {
+        super.restoreState(state);
+        PlayerState s = (PlayerState) state;
+        life = s.life;
+        flareCount = s.flareCount;
+        powerVal = s.powerVal;
+        lightRadius = s.lightRadius;
+        throwing = s.throwing;
+        deathDelay = s.deathDelay;
+        winDelay = s.winDelay;
+        fireBuddyCool = s.fireBuddyCool;
+        // The one-shot animations must start over, or a retried death/win plays only its last frame
+        if (fireBuddyThrow != null) fireBuddyThrow.setFrame(0);
+        if (fireBuddyWin != null) fireBuddyWin.setFrame(0);
+        if (deathFilmstripLeft != null) deathFilmstripLeft.setFrame(s.deathFrameLeft);
+        if (deathFilmstripRight != null) deathFilmstripRight.setFrame(s.deathFrameRight);
+        fireBuddyFilmstrip = s.fireBuddyFilmstrip;
+        if (fireBuddyFilmstrip != null) fireBuddyFilmstrip.setFrame(s.fireBuddyFrame);
+    }
+
+    /**
+     * Includes the fire buddy drawn with the player
+     * @param bounds The rectangle to store the area in
+     * @return the given rectangle
+     */
+    @Override
+    public Rectangle getDrawBounds(Rectangle bounds) {
+        super.getDrawBounds(bounds);
+        if (fireBuddyFilmstrip != null) {
+            float x = getX() * drawScale.x - (isSneaking() ? getFireBuddySneakX() : getFireBuddyOriginX());
+            float y = getY() * drawScale.y - (isSneaking() ? getFireBuddySneakY() : getFireBuddyOriginY());
+            bounds.merge(x, y);
+            bounds.merge(x + fireBuddyFilmstrip.getRegionWidth(), y + fireBuddyFilmstrip.getRegionHeight());
+        }
+        return bounds;
+    }
+
     public void draw(GameCanvas canvas) {
         super.draw(canvas);
         if (fireBuddyFilmstrip != null) {
@@ -0,0 +1,197 @@
+package com.fallenflame.game;
+
+import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.ObjectIntMap;
+import com.fallenflame.game.physics.obstacle.SimpleObstacle;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * {@code RenderQueue} keeps the Y-ordered obstacles of a level (bigger Y is drawn first, so things lower on the screen
+ * are drawn over things behind them).
+ *
+ * Static obstacles (walls and trees) are sorted once, when the level is loaded. Dynamic obstacles are kept in the
+ * order of the last frame, which is nearly sorted since they only move a little between frames, so an insertion sort
+ * puts them back in order in about linear time. Drawing merges the two sorted runs, so nothing static is sorted again.
+ *
+ * Only what overlaps the view is drawn. The static obstacles on screen are found with a {@code CullingGrid}, and
+ * come back as positions in the sorted static run, so sorting those few ints restores their order.
+ *
+ * Nothing is allocated once the queue has grown to the number of obstacles in the level.
+ */
+public class RenderQueue {
+    /** Static obstacles, sorted by decreasing Y */
+    private SimpleObstacle[] statics = new SimpleObstacle[0];
+    /** Y of each static obstacle */
+    private float[] staticY = new float[0];
+    /** Number of static obstacles */
+    private int staticCount;
+    /** Drawing bounds of the static obstacles (item i is the static obstacle at position i) */
+    private final CullingGrid staticIndex = new CullingGrid();
+    /** Positions of the static obstacles on screen this frame */
+    private final IntArray visible = new IntArray();
+    /** Scratch rectangle for drawing bounds */
+    private final Rectangle scratch = new Rectangle();
+
+    /** Dynamic obstacles, in the order of the last frame until sort() */
+    private SimpleObstacle[] dynamics = new SimpleObstacle[16];
+    /** Y of each dynamic obstacle this frame */
+    private float[] dynamicY = new float[16];
+    /** Number of dynamic obstacles */
+    private int dynamicCount;
+    /** Frame in which each dynamic obstacle was last added */
+    private final ObjectIntMap<SimpleObstacle> frames = new ObjectIntMap<>();
+    /** Current frame */
+    private int frame;
+
+    /**
+     * Removes every obstacle.
+     */
+    public void clear() {
+        Arrays.fill(statics, 0, staticCount, null);
+        Arrays.fill(dynamics, 0, dynamicCount, null);
+        staticCount = 0;
+        dynamicCount = 0;
+        frames.clear();
+        staticIndex.clear();
+    }
+
+    /**
+     * Adds obstacles that never move. Call sortStatics() once they are all added.
+     *
+     * @param obstacles The static obstacles.
+     */
+    public void addStatics(List<? extends SimpleObstacle> obstacles) {
+        if (staticCount + obstacles.size() > statics.length) {
+            statics = Arrays.copyOf(statics, staticCount + obstacles.size());
+            staticY = Arrays.copyOf(staticY, statics.length);
+        }
+        for (int i = 0; i < obstacles.size(); i++) {
+            statics[staticCount] = obstacles.get(i);
+            staticY[staticCount++] = obstacles.get(i).getY();
+        }
+    }
+
+    /**
+     * Sorts the static obstacles and indexes their drawing bounds. Obstacles with the same Y keep the order they were
+     * added in.
+     */
+    public void sortStatics() {
+        // Done once per level, so a (boxed) merge sort is fine here
+        Integer[] order = new Integer[staticCount];
+        for (int i = 0; i < staticCount; i++) order[i] = i;
+        final float[] keys = staticY;
+        Arrays.sort(order, (a, b) -> Float.compare(keys[b], keys[a]));
+        SimpleObstacle[] sorted = new SimpleObstacle[statics.length];
+        float[] sortedY = new float[statics.length];
+        for (int i = 0; i < staticCount; i++) {
+            sorted[i] = statics[order[i]];
+            sortedY[i] = staticY[order[i]];
+        }
+        statics = sorted;
+        staticY = sortedY;
+
+        staticIndex.clear();
+        for (int i = 0; i < staticCount; i++) staticIndex.add(statics[i].getDrawBounds(scratch));
+        staticIndex.build();
+    }
+
+    /**
+     * Starts a frame of dynamic obstacles. Every dynamic obstacle to draw must be added again before sort().
+     */
+    public void begin() {
+        frame++;
+    }
+
+    /**
+     * Adds dynamic obstacles to this frame.
+     *
+     * @param obstacles The dynamic obstacles.
+     */
+    public void addAll(List<? extends SimpleObstacle> obstacles) {
+        for (int i = 0; i < obstacles.size(); i++) add(obstacles.get(i));
+    }
+
+    /**
+     * Adds a dynamic obstacle to this frame. An obstacle that was not in the last frame goes at the end.
+     *
+     * @param obstacle The dynamic obstacle.
+     */
+    public void add(SimpleObstacle obstacle) {
+        int last = frames.get(obstacle, -1);
+        frames.put(obstacle, frame);
+        if (last >= 0) return;
+        if (dynamicCount == dynamics.length) {
+            dynamics = Arrays.copyOf(dynamics, dynamicCount * 2);
+            dynamicY = Arrays.copyOf(dynamicY, dynamics.length);
+        }
+        dynamics[dynamicCount++] = obstacle;
+    }
+
+    /**
+     * Drops the dynamic obstacles that were not added this frame, and sorts the rest by their current Y.
+     */
+    public void sort() {
+        int kept = 0;
+        for (int i = 0; i < dynamicCount; i++) {
+            SimpleObstacle obstacle = dynamics[i];
+            if (frames.get(obstacle, -1) != frame) {
+                frames.remove(obstacle, -1);
+                continue;
+            }
+            dynamics[kept] = obstacle;
+            dynamicY[kept++] = obstacle.getY();
+        }
+        Arrays.fill(dynamics, kept, dynamicCount, null);
+        dynamicCount = kept;
+        insertionSort(dynamics, dynamicY, dynamicCount);
+    }
+
+    /**
+     * Draws the obstacles that overlap a view, static and dynamic, by decreasing Y. On a tie, static obstacles are
+     * drawn first.
+     *
+     * @param canvas The drawing context (begun).
+     * @param view The view (in screen pixels).
+     */
+    public void draw(GameCanvas canvas, Rectangle view) {
+        visible.clear();
+        staticIndex.query(view, visible);
+        visible.sort();
+        int v = 0, d = 0;
+        while (v < visible.size || d < dynamicCount) {
+            if (d < dynamicCount && !dynamics[d].getDrawBounds(scratch).overlaps(view)) {
+                d++;
+            } else if (d == dynamicCount || (v < visible.size && staticY[visible.get(v)] >= dynamicY[d])) {
+                statics[visible.get(v++)].draw(canvas);
+            } else {
+                dynamics[d++].draw(canvas);
+            }
+        }
+    }
+
+    /**
+     * Sorts obstacles by decreasing Y with an insertion sort, which is stable and about linear on nearly sorted input.
+     *
+     * @param obstacles The obstacles.
+     * @param keys The Y of each obstacle.
+     * @param count The number of obstacles.
+     */
+    private static void insertionSort(SimpleObstacle[] obstacles, float[] keys, int count) {
+        for (int i = 1; i < count; i++) {
+            float key = keys[i];
+            if (keys[i - 1] >= key) continue;
+            SimpleObstacle obstacle = obstacles[i];
+            int j = i - 1;
+            while (j >= 0 && keys[j] < key) {
+                keys[j + 1] = keys[j];
+                obstacles[j + 1] = obstacles[j];
+                j--;
+            }
+            keys[j + 1] = key;
+            obstacles[j + 1] = obstacle;
+        }
+    }
+}
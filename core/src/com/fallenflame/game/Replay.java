@@ -0,0 +1,89 @@
+package com.fallenflame.game;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Json;
+
+/**
+ * A recording of one attempt at a level: the level, its seed and the player's input
+ * for every simulation tick.
+ *
+ * A level loaded with the same seed and fed the same inputs tick by tick replays the
+ * attempt exactly (see ReplayPlayer).
+ */
+public class Replay {
+    /** Path of the level JSON, relative to the jsons folder */
+    public String levelPath;
+    /** Seed the level was played with */
+    public long seed;
+    /** Length of a simulation tick when recorded, in seconds */
+    public float timeStep;
+    /** Player input for every tick, in order */
+    public Array<PlayerInput> inputs = new Array<>();
+
+    /** An input with no commands, used past the end of the recording */
+    private static final PlayerInput NO_INPUT = new PlayerInput();
+
+    /**
+     * Creates an empty replay (used when reading from JSON)
+     */
+    public Replay() { }
+
+    /**
+     * Creates an empty replay for the given level
+     *
+     * @param levelPath path of the level JSON, relative to the jsons folder
+     * @param seed      seed the level is played with
+     * @param timeStep  length of a simulation tick in seconds
+     */
+    public Replay(String levelPath, long seed, float timeStep) {
+        this.levelPath = levelPath;
+        this.seed = seed;
+        this.timeStep = timeStep;
+    }
+
+    /**
+     * Appends the input of the next tick
+     *
+     * @param input the input applied this tick (copied)
+     */
+    public void record(PlayerInput input) {
+        inputs.add(new PlayerInput().set(input));
+    }
+
+    /**
+     * Returns the number of ticks recorded
+     *
+     * @return the number of ticks recorded
+     */
+    public int size() { return inputs.size; }
+
+    /**
+     * Returns the input recorded for the given tick
+     *
+     * @param tick the tick number, starting at 0
+     * @return the input recorded for that tick, or no input if out of range
+     */
+    public PlayerInput getInput(long tick) {
+        return tick >= 0 && tick < inputs.size ? inputs.get((int) tick) : NO_INPUT;
+    }
+
+    /**
+     * Writes this replay to the given file as JSON
+     *
+     * @param file the file to write
+     */
+    public void save(FileHandle file) {
+        new Json().toJson(this, file);
+    }
+
+    /**
+     * Reads a replay written by save()
+     *
+     * @param file the file to read
+     * @return the replay
+     */
+    public static Replay load(FileHandle file) {
+        return new Json().fromJson(Replay.class, file);
+    }
+}
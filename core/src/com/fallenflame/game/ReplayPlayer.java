@@ -0,0 +1,136 @@
+package com.fallenflame.game;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.g2d.ParticleEffect;
+import com.badlogic.gdx.utils.JsonReader;
+import com.badlogic.gdx.utils.JsonValue;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Drives a LevelController from a Replay, one simulation tick at a time.
+ *
+ * Nothing is drawn and lights are not updated, so a replay runs as fast as the
+ * simulation allows.  A checkpoint (LevelSnapshot) is taken every few ticks, letting
+ * seek() jump backwards or forwards without re-simulating from the first tick.
+ */
+public class ReplayPlayer {
+    /** Default number of ticks between checkpoints (10 seconds at 60Hz) */
+    public static final int DEFAULT_CHECKPOINT_INTERVAL = 600;
+
+    /** The level being driven */
+    private final LevelController level;
+    /** The recording being played */
+    private final Replay replay;
+    /** Number of ticks between checkpoints */
+    private final int checkpointInterval;
+    /** Checkpoints taken so far, by tick */
+    private final TreeMap<Long, LevelSnapshot> checkpoints = new TreeMap<>();
+
+    /**
+     * Loads the level of the given replay, seeded as it was when recorded.
+     *
+     * The level is headless: it has no lights, fog, text or sound, so it can be
+     * simulated off the main thread.
+     *
+     * @param replay        the replay to load the level for
+     * @param globalJson    the global JSON constants
+     * @param fogTemplate   the fog particle template (unused by headless levels, may be null)
+     * @return a freshly populated level, ready for a ReplayPlayer
+     */
+    public static LevelController loadLevel(Replay replay, JsonValue globalJson, ParticleEffect fogTemplate) {
+        JsonValue levelJson = new JsonReader().parse(Gdx.files.internal("jsons/" + replay.levelPath));
+        LevelController level = new LevelController();
+        level.setHeadless(true);
+        level.setSeed(replay.seed);
+        level.populate(levelJson, globalJson, fogTemplate);
+        level.setLevelState(LevelController.LevelState.IN_PROGRESS);
+        level.getWorld().setContactListener(level);
+        if (level.getTimeStep() != replay.timeStep) {
+            Gdx.app.error("ReplayPlayer", "Replay was recorded at a different tick rate; it will not match");
+        }
+        return level;
+    }
+
+    /**
+     * Creates a player for the given replay.
+     *
+     * The level must have just been populated with the replay's seed (see loadLevel()).
+     *
+     * @param level                 the level to drive
+     * @param replay                the recording to play
+     * @param checkpointInterval    number of ticks between checkpoints
+     */
+    public ReplayPlayer(LevelController level, Replay replay, int checkpointInterval) {
+        this.level = level;
+        this.replay = replay;
+        this.checkpointInterval = Math.max(1, checkpointInterval);
+        checkpoints.put(level.getTickCount(), level.snapshot());
+    }
+
+    /**
+     * Creates a player for the given replay with the default checkpoint interval.
+     *
+     * @param level     the level to drive
+     * @param replay    the recording to play
+     */
+    public ReplayPlayer(LevelController level, Replay replay) {
+        this(level, replay, DEFAULT_CHECKPOINT_INTERVAL);
+    }
+
+    /**
+     * Returns the tick the level is currently at
+     *
+     * @return the tick the level is currently at
+     */
+    public long getTick() { return level.getTickCount(); }
+
+    /**
+     * Returns whether every recorded tick has been played
+     *
+     * @return whether every recorded tick has been played
+     */
+    public boolean isFinished() { return level.getTickCount() >= replay.size(); }
+
+    /**
+     * Plays the next recorded tick.
+     */
+    public void step() {
+        long tick = level.getTickCount();
+        level.setInput(replay.getInput(tick));
+        level.step();
+        long next = tick + 1;
+        if (next % checkpointInterval == 0 && !checkpoints.containsKey(next)) {
+            checkpoints.put(next, level.snapshot());
+        }
+    }
+
+    /**
+     * Plays every remaining tick as fast as possible.
+     */
+    public void runToEnd() {
+        while (!isFinished()) {
+            step();
+        }
+    }
+
+    /**
+     * Moves the level to the given tick.
+     *
+     * The level is restored from the nearest checkpoint at or before the target (if that
+     * is closer than the current tick) and then simulated forward.
+     *
+     * @param tick the tick to seek to
+     */
+    public void seek(long tick) {
+        tick = Math.max(0, Math.min(tick, replay.size()));
+        Map.Entry<Long, LevelSnapshot> checkpoint = checkpoints.floorEntry(tick);
+        if (tick < level.getTickCount() || checkpoint.getKey() > level.getTickCount()) {
+            level.restore(checkpoint.getValue());
+        }
+        while (level.getTickCount() < tick) {
+            step();
+        }
+    }
+}
@@ -41,6 +41,17 @@ public class TextController {
 //        screenHeight = Gdx.graphics.getHeight();
     }
 
+    /**
+     * Hides any message currently on screen (used when a level is restored in place).
+     */
+    public void clearMessages() {
+        nextMessage = null;
+        nextMessageRect = null;
+        prevMessage = null;
+        prevMessageAlpha = 1;
+        nextMessageAlpha = 0;
+    }
+
     public void dispose() {
         if (texts != null) {
             texts.clear();
@@ -0,0 +1,146 @@
+package com.fallenflame.game;
+
+import com.badlogic.gdx.utils.IntArray;
+
+/**
+ * {@code TileChanges} collects the regions of a tile grid whose contents may have changed, so that consumers (like
+ * fog) only revisit those tiles instead of the whole grid.
+ *
+ * Producers restamp their moving things once per tick between beginStamps() and endStamps(). Each stamp is the tile
+ * rectangle a thing covers plus a key for what it does to those tiles (e.g. the size of a light). A stamp that
+ * differs from the stamp in the same position last tick adds both rectangles to the changed regions. Changed regions
+ * pile up until the consumer clears them, and collapse into "everything changed" if too many pile up (e.g. when
+ * nobody consumes them).
+ */
+public class TileChanges {
+    /** Most regions kept before everything is considered changed */
+    private static final int MAX_REGIONS = 64;
+    /** Number of ints per stamp */
+    private static final int STAMP_SIZE = 5;
+
+    /** Changed regions, as inclusive x0, y0, x1, y1 */
+    private final IntArray regions = new IntArray();
+    /** Whether everything may have changed */
+    private boolean all = true;
+    /** Stamps of this tick, as inclusive x0, y0, x1, y1 and a key */
+    private IntArray stamps = new IntArray();
+    /** Stamps of the last tick */
+    private IntArray previousStamps = new IntArray();
+
+    /**
+     * Starts a new tick of stamps.
+     */
+    public void beginStamps() {
+        IntArray swap = previousStamps;
+        previousStamps = stamps;
+        stamps = swap;
+        stamps.clear();
+    }
+
+    /**
+     * Records the tile rectangle a thing covers this tick.
+     *
+     * @param x0 The first column.
+     * @param y0 The first row.
+     * @param x1 The last column (inclusive).
+     * @param y1 The last row (inclusive).
+     * @param key What the thing does to the tiles (stamps with different keys differ even if their tiles do not).
+     */
+    public void stamp(int x0, int y0, int x1, int y1, int key) {
+        stamps.add(x0);
+        stamps.add(y0);
+        stamps.add(x1);
+        stamps.add(y1);
+        stamps.add(key);
+    }
+
+    /**
+     * Finishes the tick of stamps, and marks every stamp that differs from last tick's as changed.
+     */
+    public void endStamps() {
+        if (all) return;
+        if (stamps.size != previousStamps.size) {
+            addAll(stamps);
+            addAll(previousStamps);
+            return;
+        }
+        for (int i = 0; i < stamps.size; i += STAMP_SIZE) {
+            for (int j = i; j < i + STAMP_SIZE; j++) {
+                if (stamps.get(j) != previousStamps.get(j)) {
+                    add(stamps, i);
+                    add(previousStamps, i);
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Marks a region as changed.
+     *
+     * @param x0 The first column.
+     * @param y0 The first row.
+     * @param x1 The last column (inclusive).
+     * @param y1 The last row (inclusive).
+     */
+    public void add(int x0, int y0, int x1, int y1) {
+        if (all) return;
+        if (regions.size >= 4 * MAX_REGIONS) {
+            markAll();
+            return;
+        }
+        regions.add(x0);
+        regions.add(y0);
+        regions.add(x1);
+        regions.add(y1);
+    }
+
+    /**
+     * Marks everything as changed.
+     */
+    public void markAll() {
+        all = true;
+        regions.clear();
+    }
+
+    /**
+     * Returns whether everything may have changed (the regions are then empty).
+     *
+     * @return Whether everything may have changed.
+     */
+    public boolean isAll() { return all; }
+
+    /**
+     * Returns the changed regions, as inclusive x0, y0, x1, y1.
+     *
+     * @return The changed regions.
+     */
+    public IntArray getRegions() { return regions; }
+
+    /**
+     * Forgets the changes, once they have been consumed.
+     */
+    public void clear() {
+        all = false;
+        regions.clear();
+    }
+
+    /**
+     * Marks the stamp at an offset of a stamp list as changed.
+     *
+     * @param list The stamp list.
+     * @param i The offset of the stamp.
+     */
+    private void add(IntArray list, int i) {
+        add(list.get(i), list.get(i + 1), list.get(i + 2), list.get(i + 3));
+    }
+
+    /**
+     * Marks every stamp of a stamp list as changed.
+     *
+     * @param list The stamp list.
+     */
+    private void addAll(IntArray list) {
+        for (int i = 0; i < list.size; i += STAMP_SIZE) add(list, i);
+    }
+}
@@ -2,6 +2,7 @@ package com.fallenflame.game;
 
 import com.badlogic.gdx.graphics.g2d.PolygonRegion;
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.math.Rectangle;
 import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.physics.box2d.BodyDef;
 import com.badlogic.gdx.utils.JsonValue;
@@ -42,6 +43,14 @@ public class TreeModel extends BoxObstacle implements IWallLike {
         offsetY = offsets[1];
     }
 
+    @Override
+    public Rectangle getDrawBounds(Rectangle bounds) {
+        if (texture == null) return bounds.set(getX() * drawScale.x, getY() * drawScale.y, 0, 0);
+        return bounds.set(getX() * drawScale.x - texture.getRegionWidth() / 2f + offsetX,
+                getY() * drawScale.y - texture.getRegionHeight() / 2f + offsetY,
+                texture.getRegionWidth(), texture.getRegionHeight());
+    }
+
     @Override
     public void draw(GameCanvas canvas) {
         if (texture != null) {
@@ -2,6 +2,7 @@ package com.fallenflame.game;
 
 import com.badlogic.gdx.graphics.g2d.PolygonRegion;
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.math.Rectangle;
 import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.physics.box2d.BodyDef;
 import com.badlogic.gdx.utils.JsonValue;
@@ -174,6 +175,14 @@ public class WallModel extends BoxObstacle implements IWallLike {
         setTexture(texture);
     }
 
+    @Override
+    public Rectangle getDrawBounds(Rectangle bounds) {
+        // The tiled region covers the body plus its padding
+        return bounds.set((getX() - getWidth() / 2 - padding.x) * drawScale.x,
+                (getY() - getHeight() / 2 - padding.y) * drawScale.y,
+                (getWidth() + 2 * padding.x) * drawScale.x, (getHeight() + 2 * padding.y) * drawScale.y);
+    }
+
     @Override
     public void draw(GameCanvas canvas) {
         if (region != null) {
@@ -0,0 +1,33 @@
+package com.fallenflame.game.ecs;
+
+import com.badlogic.ashley.core.Component;
+import com.fallenflame.game.physics.obstacle.SimpleObstacle;
+
+/**
+ * Marks an entity that is drawn with the level.
+ */
+public class DrawableComponent implements Component {
+    /** Where an entity is drawn */
+    public enum Layer {
+        /** On the ground, under everything else (extras, the exit, items) */
+        GROUND,
+        /** Ordered by Y with the other sorted entities (walls, trees, characters, flares, fireballs) */
+        SORTED
+    }
+
+    /** The model to draw */
+    public final SimpleObstacle model;
+    /** The layer the model is drawn in */
+    public final Layer layer;
+
+    /**
+     * Creates a drawable component for the given model.
+     *
+     * @param model The model to draw.
+     * @param layer The layer the model is drawn in.
+     */
+    public DrawableComponent(SimpleObstacle model, Layer layer) {
+        this.model = model;
+        this.layer = layer;
+    }
+}
@@ -0,0 +1,35 @@
+package com.fallenflame.game.ecs;
+
+import com.badlogic.ashley.core.Component;
+import com.fallenflame.game.physics.obstacle.SimpleObstacle;
+
+/**
+ * Marks an entity that changes the fog and illumination grids as it moves.
+ */
+public class FogComponent implements Component {
+    /** How an entity affects the fog */
+    public enum Kind {
+        /** Clears the fog around it (the player) */
+        CLEARS,
+        /** Lights the tiles around it (flares) */
+        LIGHTS,
+        /** Occupies tiles and thickens the fog there (enemies) */
+        THICKENS
+    }
+
+    /** The model affecting the fog */
+    public final SimpleObstacle model;
+    /** How the model affects the fog */
+    public final Kind kind;
+
+    /**
+     * Creates a fog component for the given model.
+     *
+     * @param model The model affecting the fog.
+     * @param kind How the model affects the fog.
+     */
+    public FogComponent(SimpleObstacle model, Kind kind) {
+        this.model = model;
+        this.kind = kind;
+    }
+}
@@ -0,0 +1,90 @@
+package com.fallenflame.game.ecs;
+
+import com.badlogic.ashley.core.ComponentMapper;
+import com.badlogic.ashley.core.Engine;
+import com.badlogic.ashley.core.Entity;
+import com.badlogic.ashley.core.EntitySystem;
+import com.badlogic.ashley.core.Family;
+import com.badlogic.ashley.utils.ImmutableArray;
+import com.fallenflame.game.FlareModel;
+import com.fallenflame.game.IlluminationGrid;
+import com.fallenflame.game.LevelModel;
+import com.fallenflame.game.PlayerModel;
+import com.fallenflame.game.enemies.EnemyModel;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Stamps the entities that affect the fog into the level models and the illumination grid after every tick.
+ */
+public class FogSystem extends EntitySystem {
+    /** Entities that affect the fog */
+    private static final Family FOG = Family.all(FogComponent.class).get();
+
+    private final ComponentMapper<FogComponent> fogs = ComponentMapper.getFor(FogComponent.class);
+    /** Level model for AI pathfinding */
+    private final LevelModel pathLevelModel;
+    /** Level model for fog */
+    private final LevelModel fogLevelModel;
+    /** Where the level is lit */
+    private final IlluminationGrid illumination;
+    /** The entities that affect the fog, kept up to date by the engine */
+    private ImmutableArray<Entity> entities;
+    // Entities of each kind this tick (reused, so nothing is allocated per tick)
+    private PlayerModel player;
+    private final List<FlareModel> flares = new ArrayList<>();
+    private final List<EnemyModel> enemies = new ArrayList<>();
+
+    /**
+     * Creates a fog system updating the given grids.
+     *
+     * @param pathLevelModel The level model for AI pathfinding.
+     * @param fogLevelModel The level model for fog.
+     * @param illumination Where the level is lit.
+     */
+    public FogSystem(LevelModel pathLevelModel, LevelModel fogLevelModel, IlluminationGrid illumination) {
+        this.pathLevelModel = pathLevelModel;
+        this.fogLevelModel = fogLevelModel;
+        this.illumination = illumination;
+    }
+
+    @Override
+    public void addedToEngine(Engine engine) {
+        entities = engine.getEntitiesFor(FOG);
+    }
+
+    @Override
+    public void removedFromEngine(Engine engine) {
+        entities = null;
+    }
+
+    /**
+     * Updates the level models and the illumination grid.
+     *
+     * @param deltaTime The length of a tick.
+     */
+    @Override
+    public void update(float deltaTime) {
+        player = null;
+        flares.clear();
+        enemies.clear();
+        for (int i = 0; i < entities.size(); i++) {
+            FogComponent fog = fogs.get(entities.get(i));
+            switch (fog.kind) {
+                case CLEARS:
+                    player = (PlayerModel) fog.model;
+                    break;
+                case LIGHTS:
+                    flares.add((FlareModel) fog.model);
+                    break;
+                case THICKENS:
+                    enemies.add((EnemyModel) fog.model);
+                    break;
+            }
+        }
+        pathLevelModel.update(player, enemies);
+        fogLevelModel.update(player, enemies);
+        illumination.update(player, flares, enemies);
+    }
+}
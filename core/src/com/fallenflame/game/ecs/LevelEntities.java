@@ -0,0 +1,115 @@
+package com.fallenflame.game.ecs;
+
+import com.badlogic.ashley.core.Entity;
+import com.fallenflame.game.*;
+import com.fallenflame.game.enemies.EnemyModel;
+import com.fallenflame.game.physics.obstacle.SimpleObstacle;
+
+/**
+ * Builds the entity for each kind of level model, so every place that creates a model gives it the same components.
+ */
+public final class LevelEntities {
+    private LevelEntities() {}
+
+    /**
+     * Returns the entity for the player.
+     *
+     * @param player The player.
+     * @return the entity for the player
+     */
+    public static Entity player(PlayerModel player) {
+        return moving(player, DrawableComponent.Layer.SORTED)
+                .add(new FogComponent(player, FogComponent.Kind.CLEARS));
+    }
+
+    /**
+     * Returns the entity for the exit.
+     *
+     * @param exit The exit.
+     * @return the entity for the exit
+     */
+    public static Entity exit(ExitModel exit) {
+        return still(exit, DrawableComponent.Layer.GROUND).add(new PhysicsComponent(exit));
+    }
+
+    /**
+     * Returns the entity for a wall or a tree.
+     *
+     * @param obstacle The wall or tree.
+     * @return the entity for the wall or tree
+     */
+    public static Entity wall(SimpleObstacle obstacle) {
+        return still(obstacle, DrawableComponent.Layer.SORTED).add(new PhysicsComponent(obstacle));
+    }
+
+    /**
+     * Returns the entity for a cosmetic extra (which has no body).
+     *
+     * @param extra The extra.
+     * @return the entity for the extra
+     */
+    public static Entity extra(ExtraModel extra) {
+        return still(extra, DrawableComponent.Layer.GROUND);
+    }
+
+    /**
+     * Returns the entity for an enemy.
+     *
+     * @param enemy The enemy.
+     * @return the entity for the enemy
+     */
+    public static Entity enemy(EnemyModel enemy) {
+        return moving(enemy, DrawableComponent.Layer.SORTED)
+                .add(new LightEmitterComponent(enemy, LightEmitterComponent.Kind.ENEMY))
+                .add(new FogComponent(enemy, FogComponent.Kind.THICKENS))
+                .add(new SoundSourceComponent(enemy));
+    }
+
+    /**
+     * Returns the entity for a flare.
+     *
+     * @param flare The flare.
+     * @return the entity for the flare
+     */
+    public static Entity flare(FlareModel flare) {
+        return moving(flare, DrawableComponent.Layer.SORTED)
+                .add(new LightEmitterComponent(flare, LightEmitterComponent.Kind.FLARE))
+                .add(new FogComponent(flare, FogComponent.Kind.LIGHTS));
+    }
+
+    /**
+     * Returns the entity for a fireball.
+     *
+     * @param fireball The fireball.
+     * @return the entity for the fireball
+     */
+    public static Entity fireball(FireballModel fireball) {
+        return moving(fireball, DrawableComponent.Layer.SORTED)
+                .add(new LightEmitterComponent(fireball, LightEmitterComponent.Kind.FIREBALL));
+    }
+
+    /**
+     * Returns the entity for an item.
+     *
+     * Items can be picked up, so they are drawn and culled one by one like moving entities.
+     *
+     * @param item The item.
+     * @return the entity for the item
+     */
+    public static Entity item(ItemModel item) {
+        return moving(item, DrawableComponent.Layer.GROUND)
+                .add(new LightEmitterComponent(item, LightEmitterComponent.Kind.ITEM));
+    }
+
+    private static Entity moving(SimpleObstacle model, DrawableComponent.Layer layer) {
+        return new Entity()
+                .add(new PhysicsComponent(model))
+                .add(new DrawableComponent(model, layer));
+    }
+
+    private static Entity still(SimpleObstacle model, DrawableComponent.Layer layer) {
+        return new Entity()
+                .add(new DrawableComponent(model, layer))
+                .add(new StaticComponent());
+    }
+}
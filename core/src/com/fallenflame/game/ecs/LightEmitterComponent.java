@@ -0,0 +1,33 @@
+package com.fallenflame.game.ecs;
+
+import com.badlogic.ashley.core.Component;
+import com.fallenflame.game.ILight;
+
+/**
+ * Marks an entity that carries a light of its own (the player's light is kept by LightController).
+ */
+public class LightEmitterComponent implements Component {
+    /** The kinds of light LightController keeps apart */
+    public enum Kind {
+        FLARE,
+        ENEMY,
+        FIREBALL,
+        ITEM
+    }
+
+    /** The model giving off the light */
+    public final ILight source;
+    /** The kind of light */
+    public final Kind kind;
+
+    /**
+     * Creates a light emitter component for the given model.
+     *
+     * @param source The model giving off the light.
+     * @param kind The kind of light.
+     */
+    public LightEmitterComponent(ILight source, Kind kind) {
+        this.source = source;
+        this.kind = kind;
+    }
+}
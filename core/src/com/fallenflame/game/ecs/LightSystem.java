@@ -0,0 +1,86 @@
+package com.fallenflame.game.ecs;
+
+import com.badlogic.ashley.core.ComponentMapper;
+import com.badlogic.ashley.core.Engine;
+import com.badlogic.ashley.core.Entity;
+import com.badlogic.ashley.core.EntitySystem;
+import com.badlogic.ashley.core.Family;
+import com.badlogic.ashley.utils.ImmutableArray;
+import com.fallenflame.game.FireballModel;
+import com.fallenflame.game.FlareModel;
+import com.fallenflame.game.ItemModel;
+import com.fallenflame.game.LightController;
+import com.fallenflame.game.enemies.EnemyModel;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hands every light emitter to the LightController, grouped by kind.
+ *
+ * Lights follow the interpolated positions, so the level calls updateLights() once per frame and the system does
+ * nothing in Engine.update().
+ */
+public class LightSystem extends EntitySystem {
+    /** Entities that give off light */
+    private static final Family EMITTERS = Family.all(LightEmitterComponent.class).get();
+
+    private final ComponentMapper<LightEmitterComponent> emitters = ComponentMapper.getFor(LightEmitterComponent.class);
+    /** The controller that owns the lights */
+    private final LightController lights;
+    /** The light emitters, kept up to date by the engine */
+    private ImmutableArray<Entity> entities;
+    // Emitters of each kind this frame (reused, so nothing is allocated per frame)
+    private final List<FlareModel> flares = new ArrayList<>();
+    private final List<EnemyModel> enemies = new ArrayList<>();
+    private final List<FireballModel> fireballs = new ArrayList<>();
+    private final List<ItemModel> items = new ArrayList<>();
+
+    /**
+     * Creates a light system for the given controller.
+     *
+     * @param lights The controller that owns the lights.
+     */
+    public LightSystem(LightController lights) {
+        this.lights = lights;
+        setProcessing(false);
+    }
+
+    @Override
+    public void addedToEngine(Engine engine) {
+        entities = engine.getEntitiesFor(EMITTERS);
+    }
+
+    @Override
+    public void removedFromEngine(Engine engine) {
+        entities = null;
+    }
+
+    /**
+     * Updates every light. Call this before LightController.draw().
+     */
+    public void updateLights() {
+        flares.clear();
+        enemies.clear();
+        fireballs.clear();
+        items.clear();
+        for (int i = 0; i < entities.size(); i++) {
+            LightEmitterComponent emitter = emitters.get(entities.get(i));
+            switch (emitter.kind) {
+                case FLARE:
+                    flares.add((FlareModel) emitter.source);
+                    break;
+                case ENEMY:
+                    enemies.add((EnemyModel) emitter.source);
+                    break;
+                case FIREBALL:
+                    fireballs.add((FireballModel) emitter.source);
+                    break;
+                case ITEM:
+                    items.add((ItemModel) emitter.source);
+                    break;
+            }
+        }
+        lights.updateLights(flares, enemies, fireballs, items);
+    }
+}
@@ -0,0 +1,67 @@
+package com.fallenflame.game.ecs;
+
+import com.badlogic.ashley.core.ComponentMapper;
+import com.badlogic.ashley.core.Engine;
+import com.badlogic.ashley.core.Entity;
+import com.badlogic.ashley.core.EntitySystem;
+import com.badlogic.ashley.core.Family;
+import com.badlogic.ashley.utils.ImmutableArray;
+
+/**
+ * Interpolates the bodies that move between simulation ticks.
+ *
+ * The level calls these methods around each tick and each frame, so the system does nothing in Engine.update().
+ */
+public class MotionSystem extends EntitySystem {
+    /** Entities with a body that can move */
+    private static final Family MOVING = Family.all(PhysicsComponent.class).exclude(StaticComponent.class).get();
+
+    private final ComponentMapper<PhysicsComponent> physics = ComponentMapper.getFor(PhysicsComponent.class);
+    /** The moving entities, kept up to date by the engine */
+    private ImmutableArray<Entity> entities;
+
+    public MotionSystem() {
+        setProcessing(false);
+    }
+
+    @Override
+    public void addedToEngine(Engine engine) {
+        entities = engine.getEntitiesFor(MOVING);
+    }
+
+    @Override
+    public void removedFromEngine(Engine engine) {
+        entities = null;
+    }
+
+    /**
+     * Records the transform of every moving body before a simulation tick.
+     */
+    public void savePreviousTransforms() {
+        for (int i = 0; i < entities.size(); i++) {
+            physics.get(entities.get(i)).body.savePreviousTransform();
+        }
+    }
+
+    /**
+     * Makes every moving body report its interpolated position between the last two ticks.
+     *
+     * Must be paired with endInterpolation() before the next tick.
+     *
+     * @param alpha Fraction of a tick that has elapsed since the last step, in [0,1].
+     */
+    public void beginInterpolation(float alpha) {
+        for (int i = 0; i < entities.size(); i++) {
+            physics.get(entities.get(i)).body.beginInterpolation(alpha);
+        }
+    }
+
+    /**
+     * Makes every moving body report its simulated position again.
+     */
+    public void endInterpolation() {
+        for (int i = 0; i < entities.size(); i++) {
+            physics.get(entities.get(i)).body.endInterpolation();
+        }
+    }
+}
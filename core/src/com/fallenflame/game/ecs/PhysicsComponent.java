@@ -0,0 +1,21 @@
+package com.fallenflame.game.ecs;
+
+import com.badlogic.ashley.core.Component;
+import com.fallenflame.game.physics.obstacle.SimpleObstacle;
+
+/**
+ * Marks an entity whose model has a Box2D body in the level's world.
+ */
+public class PhysicsComponent implements Component {
+    /** The model that owns the body */
+    public final SimpleObstacle body;
+
+    /**
+     * Creates a physics component for the given model.
+     *
+     * @param body The model that owns the body.
+     */
+    public PhysicsComponent(SimpleObstacle body) {
+        this.body = body;
+    }
+}
@@ -0,0 +1,164 @@
+package com.fallenflame.game.ecs;
+
+import com.badlogic.ashley.core.ComponentMapper;
+import com.badlogic.ashley.core.Engine;
+import com.badlogic.ashley.core.Entity;
+import com.badlogic.ashley.core.EntityListener;
+import com.badlogic.ashley.core.EntitySystem;
+import com.badlogic.ashley.core.Family;
+import com.badlogic.ashley.utils.ImmutableArray;
+import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.utils.IntArray;
+import com.fallenflame.game.CullingGrid;
+import com.fallenflame.game.GameCanvas;
+import com.fallenflame.game.RenderQueue;
+import com.fallenflame.game.physics.obstacle.SimpleObstacle;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Draws every drawable entity: the ground layer first, then the sorted layer by decreasing Y.
+ *
+ * Static entities are indexed once (a CullingGrid for the ground, the RenderQueue's sorted run for the rest) and
+ * indexed again only if a static entity enters or leaves the engine. Moving entities are culled one by one.
+ *
+ * The level draws in several passes around the lights and fog, so it calls these methods itself and the system does
+ * nothing in Engine.update().
+ */
+public class RenderSystem extends EntitySystem implements EntityListener {
+    /** Entities that are drawn */
+    private static final Family DRAWABLE = Family.all(DrawableComponent.class).get();
+    /** Drawn entities that never move */
+    private static final Family STATIC = Family.all(DrawableComponent.class, StaticComponent.class).get();
+    /** Drawn entities that may move */
+    private static final Family DYNAMIC = Family.all(DrawableComponent.class).exclude(StaticComponent.class).get();
+
+    private final ComponentMapper<DrawableComponent> drawables = ComponentMapper.getFor(DrawableComponent.class);
+    // Entities of each family, kept up to date by the engine
+    private ImmutableArray<Entity> all;
+    private ImmutableArray<Entity> statics;
+    private ImmutableArray<Entity> dynamics;
+    /** Whether the static entities changed since they were last indexed */
+    private boolean dirty;
+
+    /** Static ground models, in the order they entered the engine */
+    private final List<SimpleObstacle> ground = new ArrayList<>();
+    /** Drawing bounds of the static ground models (item i is ground.get(i)) */
+    private final CullingGrid groundIndex = new CullingGrid();
+    /** Static ground models on screen this frame */
+    private final IntArray visibleGround = new IntArray();
+    /** Static sorted models (scratch for indexing) */
+    private final List<SimpleObstacle> sorted = new ArrayList<>();
+    /** Sorted models in drawing order */
+    private final RenderQueue renderQueue = new RenderQueue();
+    /** Scratch rectangle for drawing bounds */
+    private final Rectangle drawBounds = new Rectangle();
+
+    public RenderSystem() {
+        setProcessing(false);
+    }
+
+    @Override
+    public void addedToEngine(Engine engine) {
+        all = engine.getEntitiesFor(DRAWABLE);
+        statics = engine.getEntitiesFor(STATIC);
+        dynamics = engine.getEntitiesFor(DYNAMIC);
+        engine.addEntityListener(STATIC, this);
+        dirty = true;
+    }
+
+    @Override
+    public void removedFromEngine(Engine engine) {
+        engine.removeEntityListener(this);
+        all = statics = dynamics = null;
+        ground.clear();
+        groundIndex.clear();
+        renderQueue.clear();
+    }
+
+    @Override
+    public void entityAdded(Entity entity) {
+        dirty = true;
+    }
+
+    @Override
+    public void entityRemoved(Entity entity) {
+        dirty = true;
+    }
+
+    /**
+     * Draws the ground layer (extras and the exit, then items).
+     *
+     * @param canvas The drawing context (begun).
+     * @param view The part of the level on screen (in screen pixels).
+     */
+    public void drawGround(GameCanvas canvas, Rectangle view) {
+        if (dirty) index();
+        visibleGround.clear();
+        groundIndex.query(view, visibleGround);
+        visibleGround.sort();
+        for (int i = 0; i < visibleGround.size; i++) {
+            ground.get(visibleGround.get(i)).draw(canvas);
+        }
+        for (int i = 0; i < dynamics.size(); i++) {
+            DrawableComponent drawable = drawables.get(dynamics.get(i));
+            if (drawable.layer != DrawableComponent.Layer.GROUND) continue;
+            if (drawable.model.getDrawBounds(drawBounds).overlaps(view)) drawable.model.draw(canvas);
+        }
+    }
+
+    /**
+     * Draws the sorted layer by decreasing Y (bigger Y = draw first).
+     *
+     * @param canvas The drawing context (begun).
+     * @param view The part of the level on screen (in screen pixels).
+     */
+    public void drawSorted(GameCanvas canvas, Rectangle view) {
+        if (dirty) index();
+        renderQueue.begin();
+        for (int i = 0; i < dynamics.size(); i++) {
+            DrawableComponent drawable = drawables.get(dynamics.get(i));
+            if (drawable.layer == DrawableComponent.Layer.SORTED) renderQueue.add(drawable.model);
+        }
+        renderQueue.sort();
+        renderQueue.draw(canvas, view);
+    }
+
+    /**
+     * Outlines every drawn model.
+     *
+     * @param canvas The drawing context (begun for debug drawing).
+     */
+    public void drawDebug(GameCanvas canvas) {
+        for (int i = 0; i < all.size(); i++) {
+            drawables.get(all.get(i)).model.drawDebug(canvas);
+        }
+    }
+
+    /**
+     * Indexes the static entities for culling, and sorts the static sorted ones.
+     */
+    private void index() {
+        ground.clear();
+        sorted.clear();
+        for (int i = 0; i < statics.size(); i++) {
+            DrawableComponent drawable = drawables.get(statics.get(i));
+            if (drawable.layer == DrawableComponent.Layer.GROUND) {
+                ground.add(drawable.model);
+            } else {
+                sorted.add(drawable.model);
+            }
+        }
+        groundIndex.clear();
+        for (SimpleObstacle model : ground) {
+            groundIndex.add(model.getDrawBounds(drawBounds));
+        }
+        groundIndex.build();
+        renderQueue.clear();
+        renderQueue.addStatics(sorted);
+        renderQueue.sortStatics();
+        sorted.clear();
+        dirty = false;
+    }
+}
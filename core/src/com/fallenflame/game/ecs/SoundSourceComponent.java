@@ -0,0 +1,21 @@
+package com.fallenflame.game.ecs;
+
+import com.badlogic.ashley.core.Component;
+import com.fallenflame.game.enemies.EnemyModel;
+
+/**
+ * Marks an entity that plays positional sounds while it is in the level.
+ */
+public class SoundSourceComponent implements Component {
+    /** The enemy whose constant and movement sounds are played */
+    public final EnemyModel enemy;
+
+    /**
+     * Creates a sound source component for the given enemy.
+     *
+     * @param enemy The enemy whose sounds are played.
+     */
+    public SoundSourceComponent(EnemyModel enemy) {
+        this.enemy = enemy;
+    }
+}
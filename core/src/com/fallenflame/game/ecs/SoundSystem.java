@@ -0,0 +1,115 @@
+package com.fallenflame.game.ecs;
+
+import com.badlogic.ashley.core.ComponentMapper;
+import com.badlogic.ashley.core.Engine;
+import com.badlogic.ashley.core.Entity;
+import com.badlogic.ashley.core.EntityListener;
+import com.badlogic.ashley.core.EntitySystem;
+import com.badlogic.ashley.core.Family;
+import com.badlogic.ashley.utils.ImmutableArray;
+import com.fallenflame.game.PlayerModel;
+import com.fallenflame.game.enemies.EnemyModel;
+
+import static com.fallenflame.game.LevelController.*;
+
+/**
+ * Plays the sounds of every sound source, panned and faded by its distance to the player.
+ *
+ * A source starts its constant sound when it enters the level and stops its sounds when it leaves, so nothing
+ * outside this system needs to start or stop them.
+ */
+public class SoundSystem extends EntitySystem implements EntityListener {
+    /** Entities that play sounds */
+    private static final Family SOURCES = Family.all(SoundSourceComponent.class).get();
+
+    private final ComponentMapper<SoundSourceComponent> sources = ComponentMapper.getFor(SoundSourceComponent.class);
+    /** The player, who hears the sounds */
+    private final PlayerModel listener;
+    /** The sound sources, kept up to date by the engine */
+    private ImmutableArray<Entity> entities;
+
+    /**
+     * Creates a sound system heard by the given player.
+     *
+     * @param listener The player.
+     */
+    public SoundSystem(PlayerModel listener) {
+        this.listener = listener;
+    }
+
+    @Override
+    public void addedToEngine(Engine engine) {
+        entities = engine.getEntitiesFor(SOURCES);
+        engine.addEntityListener(SOURCES, this);
+        for (int i = 0; i < entities.size(); i++) {
+            entityAdded(entities.get(i));
+        }
+    }
+
+    @Override
+    public void removedFromEngine(Engine engine) {
+        engine.removeEntityListener(this);
+        entities = null;
+    }
+
+    @Override
+    public void entityAdded(Entity entity) {
+        EnemyModel enemy = sources.get(entity).enemy;
+        enemy.setConstantSoundID(enemy.getConstantSound().loop(0, ENEMY_CONS_PITCH, 0));
+    }
+
+    @Override
+    public void entityRemoved(Entity entity) {
+        EnemyModel enemy = sources.get(entity).enemy;
+        enemy.getConstantSound().stop(enemy.getConstantSoundID());
+        if (enemy.getActiveSoundID() != -1) enemy.getActiveSound().stop(enemy.getActiveSoundID());
+        enemy.setActiveSoundID(-1);
+    }
+
+    /**
+     * Starts, stops and pans the sound of every source for this tick.
+     *
+     * @param deltaTime The length of a tick.
+     */
+    @Override
+    public void update(float deltaTime) {
+        for (int i = 0; i < entities.size(); i++) {
+            EnemyModel enemy = sources.get(entities.get(i)).enemy;
+            float pan = (enemy.getX() - listener.getX()) * PAN_SCL;
+            if (enemy.isActivated() && (enemy.getActiveSoundID() == -1)) {
+                //start sound
+                enemy.setActiveSoundID(enemy.getActiveSound().loop(ENEMY_MOV_BASE_VOL, ENEMY_MOV_PITCH, pan));
+            } else if (!enemy.isActivated()) {
+                //end sound
+                enemy.getActiveSound().stop();
+                enemy.setActiveSoundID(-1);
+            } else {
+                //modify sound
+                enemy.getActiveSound().setPan(enemy.getActiveSoundID(), pan, ENEMY_MOV_BASE_VOL * ((1/enemy.getDistanceBetween(listener) * ENEMY_MOVE_VOL_SCL)));
+            }
+            enemy.getConstantSound().setPan(enemy.getConstantSoundID(), pan, (ENEMY_CONS_BASE_VOL * ((1/enemy.getDistanceBetween(listener) * ENEMY_CONS_VOL_SCL)))-ENEMY_CONS_VOL_THR);
+        }
+    }
+
+    /**
+     * Stops every movement sound. The next update() starts them again where needed.
+     */
+    public void stopMovement() {
+        for (int i = 0; i < entities.size(); i++) {
+            EnemyModel enemy = sources.get(entities.get(i)).enemy;
+            enemy.getActiveSound().stop();
+            enemy.setActiveSoundID(-1);
+        }
+    }
+
+    /**
+     * Stops every sound of every source.
+     */
+    public void stopAll() {
+        for (int i = 0; i < entities.size(); i++) {
+            EnemyModel enemy = sources.get(entities.get(i)).enemy;
+            enemy.getConstantSound().stop();
+            enemy.getActiveSound().stop();
+        }
+    }
+}
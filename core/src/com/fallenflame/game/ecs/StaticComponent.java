@@ -0,0 +1,11 @@
+package com.fallenflame.game.ecs;
+
+import com.badlogic.ashley.core.Component;
+
+/**
+ * Marks an entity that never moves (walls, trees, the exit and cosmetic extras).
+ *
+ * Static entities are neither interpolated nor sorted for drawing every frame.
+ */
+public class StaticComponent implements Component {
+}
@@ -68,6 +68,53 @@ public abstract class AIController {
         return action;
     }
 
+    /**
+     * The state of an AIController at a single point in time.
+     *
+     * Subclasses with their own FSM extend this class and override
+     * createState(), writeState() and restoreState().
+     */
+    public static class ControllerState {
+        private int move;
+        private long ticks;
+    }
+
+    /**
+     * Returns a snapshot of the state of this controller, to be handed back to restoreState()
+     *
+     * @return a snapshot of the state of this controller
+     */
+    public ControllerState saveState() {
+        ControllerState state = createState();
+        writeState(state);
+        return state;
+    }
+
+    /**
+     * Returns an empty state object of the right type for this controller.
+     */
+    protected ControllerState createState() { return new ControllerState(); }
+
+    /**
+     * Copies the current state of this controller into the given snapshot.
+     *
+     * @param state the snapshot to fill
+     */
+    protected void writeState(ControllerState state) {
+        state.move = move;
+        state.ticks = ticks;
+    }
+
+    /**
+     * Returns this controller to the state recorded in the given snapshot.
+     *
+     * @param state a snapshot previously returned by saveState() on this controller
+     */
+    public void restoreState(ControllerState state) {
+        move = state.move;
+        ticks = state.ticks;
+    }
+
     /**
      * Returns action codes for actions besides movement.
      * Defaults to 0 (no other action) unless extending class overwrites this function.
@@ -165,8 +212,7 @@ public abstract class AIController {
 
     /** Returns whether an enemy is in the player's light radius */
     protected boolean withinPlayerLight(){
-        double distance = cartesianDistance(enemy.getTextureX(),player.getTextureX(),enemy.getTextureY(),player.getTextureY());
-        return distance <= player.getLightRadius();
+        return level.getIllumination().getPlayerLightAt(enemy.getTextureX(), enemy.getTextureY()) >= 0;
     }
 
     /** Returns whether an enemy is in range to chase a player */
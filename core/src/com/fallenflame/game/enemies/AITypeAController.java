@@ -96,6 +96,33 @@ public class AITypeAController extends AIController {
         enemy.setInvestigatePosition(pathCoors[pathPoint]);
     }
 
+    /**
+     * The state of a type A controller, including its FSM state and place along its path.
+     */
+    protected static class TypeAState extends ControllerState {
+        private FSMState state;
+        private int pathPoint;
+    }
+
+    @Override
+    protected ControllerState createState() { return new TypeAState(); }
+
+    @Override
+    protected void writeState(ControllerState state) {
+        super.writeState(state);
+        TypeAState s = (TypeAState) state;
+        s.state = this.state;
+        s.pathPoint = pathPoint;
+    }
+
+    @Override
+    public void restoreState(ControllerState state) {
+        super.restoreState(state);
+        TypeAState s = (TypeAState) state;
+        this.state = s.state;
+        pathPoint = s.pathPoint;
+    }
+
     /**
      * Change the state of the enemy using a Finite State Machine.
      */
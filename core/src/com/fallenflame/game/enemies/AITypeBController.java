@@ -61,6 +61,42 @@ public class AITypeBController extends AIController {
         state = FSMState.IDLE;
     }
 
+    /**
+     * The state of a type B controller, including its FSM state and current target.
+     */
+    protected static class TypeBState extends ControllerState {
+        private FSMState state;
+        private int firingTime;
+        private boolean firingAtFlare;
+        private FlareModel targetFlare;
+        private boolean firedWall;
+    }
+
+    @Override
+    protected ControllerState createState() { return new TypeBState(); }
+
+    @Override
+    protected void writeState(ControllerState state) {
+        super.writeState(state);
+        TypeBState s = (TypeBState) state;
+        s.state = this.state;
+        s.firingTime = firingTime;
+        s.firingAtFlare = firingAtFlare;
+        s.targetFlare = targetFlare;
+        s.firedWall = firedWall;
+    }
+
+    @Override
+    public void restoreState(ControllerState state) {
+        super.restoreState(state);
+        TypeBState s = (TypeBState) state;
+        this.state = s.state;
+        firingTime = s.firingTime;
+        firingAtFlare = s.firingAtFlare;
+        targetFlare = s.targetFlare;
+        firedWall = s.firedWall;
+    }
+
     /**
      * Change the state of the enemy using a Finite State Machine.
      */
@@ -14,4 +14,10 @@ public class EnemyGhostModel extends EnemyModel {
     public boolean isActivated() {
         return true;
     }
+
+    /** @return True because the fog thins out around the ghost */
+    @Override
+    public boolean hasLessFog() {
+        return true;
+    }
 }
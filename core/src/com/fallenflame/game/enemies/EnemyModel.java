@@ -3,6 +3,7 @@ package com.fallenflame.game.enemies;
 import com.badlogic.gdx.audio.Sound;
 import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.math.Rectangle;
 import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.utils.JsonValue;
 import com.badlogic.gdx.utils.ObjectMap;
@@ -124,6 +125,31 @@ public abstract class EnemyModel extends CharacterModel {
      */
     public void resetPause() { pauseTime = totalPauseTime; }
 
+    /**
+     * Returns whether an enemy can fire. Default implementation returns false.
+     * For enemies that can fire, override and return true if not in cooldown
+     * @return boolean canFire
+     */
+    public boolean canFire() { return false; }
+
+    /**
+     * Reset or cool down the enemy weapon. Default implementation does nothing.
+     * @param flag whether to cooldown or reset
+     */
+    public void coolDown(boolean flag) { }
+
+    /**
+     * Get enemy's firing target. Default implementation returns null.
+     * @return Vector2 target coordinates
+     */
+    public Vector2 getFiringTarget() { return null; }
+
+    /**
+     * Returns whether the fog thins out around this enemy. Default implementation returns false.
+     * @return whether there is less fog around this enemy
+     */
+    public boolean hasLessFog() { return false; }
+
     /**
      * @return whether enemy is aggressive
      */
@@ -267,6 +293,51 @@ public abstract class EnemyModel extends CharacterModel {
         return ctrlCode != CONTROL_NO_ACTION; // Return false if no action.
     }
 
+    /**
+     * The simulated state of an enemy, including its activation state.
+     */
+    protected static class EnemyState extends CharacterState {
+        private ActivationStates state;
+        private float pauseTime;
+    }
+
+    @Override
+    protected ObstacleState createState() {
+        return new EnemyState();
+    }
+
+    @Override
+    protected void writeState(ObstacleState state) {
+        super.writeState(state);
+        EnemyState s = (EnemyState) state;
+        s.state = this.state;
+        s.pauseTime = pauseTime;
+    }
+
+    @Override
+    public void restoreState(ObstacleState state) {
+        super.restoreState(state);
+        EnemyState s = (EnemyState) state;
+        this.state = s.state;
+        pauseTime = s.pauseTime;
+    }
+
+    /**
+     * Includes the exclamation mark drawn over the enemy in "pause" state
+     * @param bounds The rectangle to store the area in
+     * @return the given rectangle
+     */
+    @Override
+    public Rectangle getDrawBounds(Rectangle bounds) {
+        super.getDrawBounds(bounds);
+        if (exclamationMark != null) {
+            float x = getX() * drawScale.x - excOriginX, y = getY() * drawScale.y - excOriginY;
+            bounds.merge(x, y);
+            bounds.merge(x + exclamationMark.getRegionWidth(), y + exclamationMark.getRegionHeight());
+        }
+        return bounds;
+    }
+
     /**
      * Draws explanation mark over enemy if in "pause" state
      * @param canvas Drawing context
@@ -78,4 +78,33 @@ public class EnemyTypeAModel extends EnemyModel {
         setInvestigatePosition(new Vector2(x, y));
     }
 
+    /**
+     * The simulated state of a type A enemy, including its investigation target.
+     */
+    protected static class EnemyTypeAState extends EnemyState {
+        private Vector2 investigatePosition;
+        private FlareModel investigateFlare;
+    }
+
+    @Override
+    protected ObstacleState createState() {
+        return new EnemyTypeAState();
+    }
+
+    @Override
+    protected void writeState(ObstacleState state) {
+        super.writeState(state);
+        EnemyTypeAState s = (EnemyTypeAState) state;
+        s.investigatePosition = getInvestigatePosition();
+        s.investigateFlare = investigateFlare;
+    }
+
+    @Override
+    public void restoreState(ObstacleState state) {
+        super.restoreState(state);
+        EnemyTypeAState s = (EnemyTypeAState) state;
+        investigatePosition = s.investigatePosition == null ? null : s.investigatePosition.cpy();
+        investigateFlare = s.investigateFlare;
+    }
+
 }
@@ -59,6 +59,7 @@ public class EnemyTypeBModel extends EnemyModel{
      * Get enemy's firing target
      * @return Vector2 target coordinates
      */
+    @Override
     public Vector2 getFiringTarget() { return firingTarget; }
 
     /**
@@ -66,6 +67,7 @@ public class EnemyTypeBModel extends EnemyModel{
      * For enemies that can fire, override and return true if not in cooldown
      * @return boolean canFire
      */
+    @Override
     public boolean canFire() {
         return firecool <= 0;
     }
@@ -78,6 +80,7 @@ public class EnemyTypeBModel extends EnemyModel{
      *
      * @param flag whether to cooldown or reset
      */
+    @Override
     public void coolDown(boolean flag) {
         if (flag && firecool > 0) {
             firecool--;
@@ -86,6 +89,12 @@ public class EnemyTypeBModel extends EnemyModel{
         }
     }
 
+    /** @return True because the fog thins out around shooters */
+    @Override
+    public boolean hasLessFog() {
+        return true;
+    }
+
     /**
      * Gets light radius for enemy
      * Overrides method in EnemyModel
@@ -95,6 +104,35 @@ public class EnemyTypeBModel extends EnemyModel{
         return isActivated() ? 5.5f : 0.0f;
     }
 
+    /**
+     * The simulated state of a type B enemy, including its weapon cooldown.
+     */
+    protected static class EnemyTypeBState extends EnemyState {
+        private Vector2 firingTarget;
+        private int firecool;
+    }
+
+    @Override
+    protected ObstacleState createState() {
+        return new EnemyTypeBState();
+    }
+
+    @Override
+    protected void writeState(ObstacleState state) {
+        super.writeState(state);
+        EnemyTypeBState s = (EnemyTypeBState) state;
+        s.firingTarget = firingTarget == null ? null : firingTarget.cpy();
+        s.firecool = firecool;
+    }
+
+    @Override
+    public void restoreState(ObstacleState state) {
+        super.restoreState(state);
+        EnemyTypeBState s = (EnemyTypeBState) state;
+        firingTarget = s.firingTarget == null ? null : s.firingTarget.cpy();
+        firecool = s.firecool;
+    }
+
     /**
      * Updates the object's physics state (NOT GAME LOGIC).
      *
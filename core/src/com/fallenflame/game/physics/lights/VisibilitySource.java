@@ -0,0 +1,357 @@
+/*
+ * VisibilitySource.java
+ *
+ * This is a subclass of PointSource that does not raycast against the Box2D world.
+ * Instead, it computes the exact visibility polygon of the light with an angular
+ * sweep over a set of wall segments, and feeds that polygon to the Box2DLights mesh.
+ *
+ * Box2DLights needs a fixed number of vertices per light, so the rays of this light
+ * are not spread evenly.  Two rays are aimed just either side of every nearby wall
+ * corner (which makes the shadow edges exact), and the rest are spread around the
+ * rim to keep it round.  Only the edges that face the light are kept, since the
+ * edges behind them can never be the nearest hit.  If a light still sees more
+ * corners than it has rays to spare, it falls back to evenly spread rays, and its
+ * shadow edges are only as exact as raycasting would make them.
+ */
+ package com.fallenflame.game.physics.lights;
+
+import box2dLight.*;
+import com.badlogic.gdx.graphics.*;
+
+import java.util.Arrays;
+
+/**
+ * A light shaped as a circle with a given radius, whose shadows are computed
+ * analytically from a set of occluder segments.
+ *
+ * Computing the polygon takes O(n log n) for the n segments near the light.  The
+ * polygon is cached and only recomputed when the light moves further than a
+ * threshold, changes radius, or the segments change.
+ */
+public class VisibilitySource extends PointSource {
+	/** The default distance the light may move before its polygon is recomputed */
+	public static final float DEFAULT_THRESHOLD = 0.05f;
+	/** Angle (in radians) either side of a corner at which rays are aimed */
+	private static final double CORNER_EPSILON = 1e-4;
+	/** Cross products smaller than this mean a segment is seen edge on */
+	private static final float EDGE_EPSILON = 1e-6f;
+	/** Full circle in radians */
+	private static final double TWO_PI = 2 * Math.PI;
+
+	/** Occluder segments, as x1, y1, x2, y2 in world coordinates (shared, not copied) */
+	protected float[] occluders;
+	/** Number of floats in occluders that are in use */
+	protected int occluderCount;
+	/** Distance the light may move before its polygon is recomputed */
+	protected float threshold = DEFAULT_THRESHOLD;
+
+	/** Whether the cached polygon can be reused */
+	private boolean cacheValid;
+	/** Position the cached polygon was computed at */
+	private float cacheX, cacheY;
+	/** Distance the cached polygon was computed with */
+	private float cacheDistance;
+	/** Cached polygon vertices, relative to the light position */
+	private float[] hitX, hitY;
+	/** Cached ray directions and fractions of the radius reached (reset by setEndPoints()) */
+	private float[] hitCos, hitSin, hitF;
+
+	// Scratch space, grown as needed and reused between updates
+	/** Nearby segments relative to the light, as ax, ay, bx, by (counterclockwise from a to b) */
+	private float[] segments = new float[64];
+	/** Start angles of segments, packed with their index for sorting */
+	private long[] starts = new long[16];
+	/** End angles of segments, packed with their index for sorting */
+	private long[] ends = new long[16];
+	/** Segments crossing the current angle of the sweep */
+	private int[] active = new int[16];
+	/** Angles of the rays */
+	private double[] angles;
+
+	/**
+	 * Creates light shaped as a circle with the given radius, color and position.
+	 *
+	 * RayHandler is NOT allowed to be null.  The rayhandler's world is never queried;
+	 * shadows come from the segments given to setOccluders().
+	 *
+	 * @param rayHandler	a non-null instance of RayHandler
+	 * @param rays			the number of rays (polygon vertices)
+	 * @param color			the light color, or null for default
+	 * @param distance		the light radius
+	 * @param x				the horizontal position in world coordinates
+	 * @param y				the vertical position in world coordinates
+	 */
+	public VisibilitySource(RayHandler rayHandler, int rays, Color color, float distance, float x, float y) {
+		super(rayHandler, rays, color, distance, x, y);
+		hitX = new float[rayNum];
+		hitY = new float[rayNum];
+		hitCos = new float[rayNum];
+		hitSin = new float[rayNum];
+		hitF = new float[rayNum];
+		angles = new double[rayNum];
+	}
+
+	/**
+	 * Sets the segments that cast shadows
+	 *
+	 * The array is shared, not copied.  Call this again whenever its contents change.
+	 * The edges of each shape must wind counterclockwise, so that their facing is known.
+	 *
+	 * @param segments	segments as x1, y1, x2, y2 in world coordinates
+	 * @param count		number of floats in use (four per segment)
+	 */
+	public void setOccluders(float[] segments, int count) {
+		occluders = segments;
+		occluderCount = count;
+		cacheValid = false;
+	}
+
+	/**
+	 * Returns the distance the light may move before its polygon is recomputed
+	 *
+	 * @return the distance the light may move before its polygon is recomputed
+	 */
+	public float getThreshold() {
+		return threshold;
+	}
+
+	/**
+	 * Sets the distance the light may move before its polygon is recomputed
+	 *
+	 * Until then, the cached polygon moves with the light.  Use 0 for exact shadows
+	 * every frame.
+	 *
+	 * @param value the distance the light may move before its polygon is recomputed
+	 */
+	public void setThreshold(float value) {
+		threshold = value;
+	}
+
+	/**
+	 * Recomputes the light polygon (if needed) and rebuilds the mesh.
+	 *
+	 * This replaces the Box2D raycasts of PositionalLight.  PointLight resets the ray
+	 * directions to even angles whenever the light is marked dirty, so the cached
+	 * directions are put back every time, not just the end points.
+	 */
+	@Override
+	protected void updateMesh() {
+		if (!cacheValid || distance != cacheDistance
+				|| Math.abs(start.x - cacheX) > threshold || Math.abs(start.y - cacheY) > threshold) {
+			computePolygon();
+			cacheX = start.x;
+			cacheY = start.y;
+			cacheDistance = distance;
+			cacheValid = true;
+		}
+		for (int i = 0; i < rayNum; i++) {
+			cos[i] = hitCos[i];
+			sin[i] = hitSin[i];
+			mx[i] = start.x + hitX[i];
+			my[i] = start.y + hitY[i];
+			f[i] = hitF[i];
+		}
+		setMesh();
+	}
+
+	/**
+	 * Computes the visibility polygon at the current position with an angular sweep.
+	 *
+	 * The segment endpoints are sorted by angle, and the sweep walks the ray angles in
+	 * order while keeping the set of segments that cross the current angle.  Each ray
+	 * stops at the nearest of those segments, or at the light radius.
+	 */
+	private void computePolygon() {
+		int count = collectSegments();
+		int n = rayNum - 1;
+
+		// Pick ray angles: either side of each corner, the rest around the rim.
+		int corners = 4 * count;
+		boolean aimCorners = corners <= n - n / 4;
+		int rim = aimCorners ? n - corners : n;
+		int k = 0;
+		for (int i = 0; i < rim; i++) {
+			angles[k++] = TWO_PI * i / rim;
+		}
+		if (aimCorners) {
+			for (int j = 0; j < count; j++) {
+				double a = angleOf(segments[4 * j], segments[4 * j + 1]);
+				double b = angleOf(segments[4 * j + 2], segments[4 * j + 3]);
+				angles[k++] = normalize(a - CORNER_EPSILON);
+				angles[k++] = normalize(a + CORNER_EPSILON);
+				angles[k++] = normalize(b - CORNER_EPSILON);
+				angles[k++] = normalize(b + CORNER_EPSILON);
+			}
+		}
+		Arrays.sort(angles, 0, n);
+
+		// Build and sort the start and end events of the segments.
+		int activeCount = 0;
+		for (int j = 0; j < count; j++) {
+			float ax = segments[4 * j], ay = segments[4 * j + 1];
+			float bx = segments[4 * j + 2], by = segments[4 * j + 3];
+			double startAngle = angleOf(ax, ay);
+			double endAngle = startAngle + Math.atan2(ax * by - ay * bx, ax * bx + ay * by);
+			if (endAngle >= TWO_PI) {
+				// Crosses angle 0: active from the start of the sweep until it ends.
+				endAngle -= TWO_PI;
+				active[activeCount++] = j;
+			}
+			starts[j] = pack(startAngle, j);
+			ends[j] = pack(endAngle, j);
+		}
+		Arrays.sort(starts, 0, count);
+		Arrays.sort(ends, 0, count);
+
+		// Sweep.
+		int si = 0, ei = 0;
+		for (int i = 0; i < n; i++) {
+			double angle = angles[i];
+			while (true) {
+				double s = si < count ? unpackAngle(starts[si]) : Double.MAX_VALUE;
+				double e = ei < count ? unpackAngle(ends[ei]) : Double.MAX_VALUE;
+				if (s <= angle && s < e) {
+					active[activeCount++] = unpackIndex(starts[si++]);
+				} else if (e < angle) {
+					activeCount = removeActive(unpackIndex(ends[ei++]), activeCount);
+				} else if (s <= angle) {
+					active[activeCount++] = unpackIndex(starts[si++]);
+				} else {
+					break;
+				}
+			}
+
+			float dx = (float) Math.cos(angle);
+			float dy = (float) Math.sin(angle);
+			float t = distance;
+			for (int a = 0; a < activeCount; a++) {
+				t = Math.min(t, castRay(dx, dy, active[a], t));
+			}
+			hitCos[i] = dx;
+			hitSin[i] = dy;
+			hitX[i] = dx * t;
+			hitY[i] = dy * t;
+			hitF[i] = t / distance;
+		}
+
+		// The last vertex closes the fan.
+		hitCos[n] = hitCos[0];
+		hitSin[n] = hitSin[0];
+		hitX[n] = hitX[0];
+		hitY[n] = hitY[0];
+		hitF[n] = hitF[0];
+	}
+
+	/**
+	 * Copies the occluder segments within reach of the light into the scratch space.
+	 *
+	 * Segments are made relative to the light and oriented counterclockwise as seen
+	 * from it.  Segments seen edge on cast no shadow and are skipped, and so are the
+	 * back faces of shapes (which the front faces always hide), halving the corners
+	 * the rays have to be aimed at.
+	 *
+	 * @return the number of segments within reach
+	 */
+	private int collectSegments() {
+		int count = 0;
+		float r = distance;
+		for (int i = 0; i + 3 < occluderCount; i += 4) {
+			float ax = occluders[i] - start.x, ay = occluders[i + 1] - start.y;
+			float bx = occluders[i + 2] - start.x, by = occluders[i + 3] - start.y;
+			if (Math.min(ax, bx) > r || Math.max(ax, bx) < -r || Math.min(ay, by) > r || Math.max(ay, by) < -r) {
+				continue;
+			}
+			// A counterclockwise edge faces the light when the light is on its right
+			float cross = ax * by - ay * bx;
+			if (cross > -EDGE_EPSILON) continue;
+
+			if (4 * count + 4 > segments.length) {
+				segments = Arrays.copyOf(segments, segments.length * 2);
+			}
+			if (count + 1 > starts.length) {
+				starts = Arrays.copyOf(starts, starts.length * 2);
+				ends = Arrays.copyOf(ends, ends.length * 2);
+				active = Arrays.copyOf(active, active.length * 2);
+			}
+			int j = 4 * count++;
+			segments[j] = bx; segments[j + 1] = by; segments[j + 2] = ax; segments[j + 3] = ay;
+		}
+		return count;
+	}
+
+	/**
+	 * Returns the distance along a ray from the light to a segment.
+	 *
+	 * @param dx		the ray direction (x)
+	 * @param dy		the ray direction (y)
+	 * @param segment	the index of the segment
+	 * @param max		the distance to return if the ray misses
+	 *
+	 * @return the distance to the segment, or max if it is missed
+	 */
+	private float castRay(float dx, float dy, int segment, float max) {
+		int j = 4 * segment;
+		float ax = segments[j], ay = segments[j + 1];
+		float ex = segments[j + 2] - ax, ey = segments[j + 3] - ay;
+		float denom = dx * ey - dy * ex;
+		if (Math.abs(denom) < EDGE_EPSILON) return max;
+		float t = (ax * ey - ay * ex) / denom;
+		float u = (ax * dy - ay * dx) / denom;
+		return (t > 0 && u >= -EDGE_EPSILON && u <= 1 + EDGE_EPSILON) ? t : max;
+	}
+
+	/**
+	 * Removes a segment from the active set.
+	 *
+	 * @param segment		the index of the segment
+	 * @param activeCount	the size of the active set
+	 *
+	 * @return the new size of the active set
+	 */
+	private int removeActive(int segment, int activeCount) {
+		for (int a = 0; a < activeCount; a++) {
+			if (active[a] == segment) {
+				active[a] = active[--activeCount];
+				break;
+			}
+		}
+		return activeCount;
+	}
+
+	/**
+	 * Returns the angle of a point around the light, in [0, 2pi)
+	 */
+	private static double angleOf(float x, float y) {
+		return normalize(Math.atan2(y, x));
+	}
+
+	/**
+	 * Wraps an angle into [0, 2pi)
+	 */
+	private static double normalize(double angle) {
+		if (angle < 0) angle += TWO_PI;
+		if (angle >= TWO_PI) angle -= TWO_PI;
+		return angle;
+	}
+
+	/**
+	 * Packs a (non-negative) angle and an index so that sorting orders by angle
+	 */
+	private static long pack(double angle, int index) {
+		return ((long) Float.floatToIntBits((float) angle) << 32) | index;
+	}
+
+	/**
+	 * Returns the angle of a packed event
+	 */
+	private static double unpackAngle(long key) {
+		return Float.intBitsToFloat((int) (key >>> 32));
+	}
+
+	/**
+	 * Returns the index of a packed event
+	 */
+	private static int unpackIndex(long key) {
+		return (int) key;
+	}
+}
@@ -42,6 +42,13 @@ public abstract class SimpleObstacle extends Obstacle {
 
 	/** The texture origin for drawing */
 	protected Vector2 origin;
+
+	/** Body position at the start of the current simulation tick (for render interpolation) */
+	private Vector2 previousPosition = new Vector2();
+	/** Position reported while interpolating, between the previous and current tick */
+	private Vector2 interpolatedPosition = new Vector2();
+	/** Whether position getters currently report the interpolated position */
+	private boolean interpolating;
 	
 	/// BodyDef Methods
 	/**
@@ -84,6 +91,9 @@ public abstract class SimpleObstacle extends Obstacle {
 	 * @return the current position for this physics body
 	 */
 	public Vector2 getPosition() {
+		if (interpolating) {
+			return interpolatedPosition;
+		}
 		return (body != null ? body.getPosition() : super.getPosition());
 	}
 	
@@ -123,6 +133,9 @@ public abstract class SimpleObstacle extends Obstacle {
 	 * @return the x-coordinate for this physics body
 	 */
 	public float getX() {
+		if (interpolating) {
+			return interpolatedPosition.x;
+		}
 		return (body != null ? body.getPosition().x : super.getX());
 	}
 	
@@ -146,6 +159,9 @@ public abstract class SimpleObstacle extends Obstacle {
 	 * @return the y-coordinate for this physics body
 	 */
 	public float getY() {
+		if (interpolating) {
+			return interpolatedPosition.y;
+		}
 		return (body != null ? body.getPosition().y : super.getY());
 	}
 	
@@ -786,6 +802,29 @@ public abstract class SimpleObstacle extends Obstacle {
 				texture.getRegionHeight()/2.0f + y * getDrawScale().y);
 	}
 
+	/**
+	 * Returns the screen area the texture of this object may cover when drawn.
+	 *
+	 * This assumes the texture is drawn about its origin at the object position, at any
+	 * angle (as in draw()).  Subclasses that draw more or elsewhere must override this,
+	 * or they may be culled while still on screen.
+	 *
+	 * @param bounds  the rectangle to store the area in
+	 *
+	 * @return the given rectangle, for chaining
+	 */
+	public Rectangle getDrawBounds(Rectangle bounds) {
+		float x = getX()*drawScale.x, y = getY()*drawScale.y;
+		if (texture == null) {
+			return bounds.set(x, y, 0, 0);
+		}
+		// The corner farthest from the origin bounds the texture at any angle
+		float rx = Math.max(origin.x, texture.getRegionWidth()-origin.x);
+		float ry = Math.max(origin.y, texture.getRegionHeight()-origin.y);
+		float r = (float)Math.sqrt(rx*rx+ry*ry);
+		return bounds.set(x-r, y-r, 2*r, 2*r);
+	}
+
 	/**
 	 * Draws the physics object.
 	 *
@@ -848,6 +887,7 @@ public abstract class SimpleObstacle extends Obstacle {
 		// Only initialize if a body was created.
 		if (body != null) {
 			createFixtures();
+			savePreviousTransform();
 			return true;
 		} 
 		
@@ -864,6 +904,7 @@ public abstract class SimpleObstacle extends Obstacle {
 	public void deactivatePhysics(World world) {
 		// Should be good for most (simple) applications.
 		if (body != null) {
+			endInterpolation();
 			// Snapshot the values
 			setBodyState(body);
 			world.destroyBody(body);
@@ -872,6 +913,115 @@ public abstract class SimpleObstacle extends Obstacle {
 		}
 	}
 
+	/// Render Interpolation
+	/**
+	 * Records the current body position as the start of the next simulation tick.
+	 *
+	 * Call this immediately before stepping the world.  The recorded position is the
+	 * "from" side of the interpolation performed by beginInterpolation().
+	 */
+	public void savePreviousTransform() {
+		if (body != null) {
+			previousPosition.set(body.getPosition());
+		}
+	}
+
+	/**
+	 * Reports a position between the previous and current simulation tick.
+	 *
+	 * Until endInterpolation() is called, getPosition(), getX() and getY() return the
+	 * interpolated position.  The Box2D body itself is never moved, so rendering cannot
+	 * disturb the simulation.  Only the position is interpolated; the angle is left
+	 * alone as most of our models snap their facing direction.
+	 *
+	 * @param alpha	fraction of a tick that has elapsed since the last step, in [0,1]
+	 */
+	public void beginInterpolation(float alpha) {
+		if (body == null || interpolating) {
+			return;
+		}
+		interpolatedPosition.set(previousPosition).lerp(body.getPosition(), alpha);
+		interpolating = true;
+	}
+
+	/**
+	 * Returns the position getters to the simulated body position.
+	 */
+	public void endInterpolation() {
+		interpolating = false;
+	}
+
+	/// State Snapshots
+	/**
+	 * The simulated state of an obstacle at a single point in time.
+	 *
+	 * Subclasses with additional game state extend this class and override
+	 * createState(), writeState() and restoreState() to carry their own fields.
+	 */
+	public static class ObstacleState {
+		/** Body position */
+		private final Vector2 position = new Vector2();
+		/** Body linear velocity */
+		private final Vector2 velocity = new Vector2();
+		/** Body angle */
+		private float angle;
+		/** Body angular velocity */
+		private float angularVelocity;
+	}
+
+	/**
+	 * Returns a snapshot of the simulated state of this obstacle.
+	 *
+	 * The snapshot can be handed back to restoreState() at any later time, even if
+	 * the physics body has been destroyed and recreated in between.
+	 *
+	 * @return a snapshot of the simulated state of this obstacle
+	 */
+	public ObstacleState saveState() {
+		ObstacleState state = createState();
+		writeState(state);
+		return state;
+	}
+
+	/**
+	 * Returns an empty state object of the right type for this obstacle.
+	 *
+	 * @return an empty state object of the right type for this obstacle
+	 */
+	protected ObstacleState createState() {
+		return new ObstacleState();
+	}
+
+	/**
+	 * Copies the current state of this obstacle into the given snapshot.
+	 *
+	 * @param state	the snapshot to fill
+	 */
+	protected void writeState(ObstacleState state) {
+		endInterpolation();
+		state.position.set(getPosition());
+		state.velocity.set(getLinearVelocity());
+		state.angle = getAngle();
+		state.angularVelocity = getAngularVelocity();
+	}
+
+	/**
+	 * Returns this obstacle to the state recorded in the given snapshot.
+	 *
+	 * @param state	a snapshot previously returned by saveState() on this obstacle
+	 */
+	public void restoreState(ObstacleState state) {
+		endInterpolation();
+		setPosition(state.position);
+		setAngle(state.angle);
+		setLinearVelocity(state.velocity);
+		setAngularVelocity(state.angularVelocity);
+		if (body != null) {
+			body.setAwake(true);
+		}
+		savePreviousTransform();
+	}
+
 	/**
 	 * Create new fixtures for this body, defining the shape
 	 *
@@ -86,6 +86,22 @@ public class FilmStrip extends TextureRegion {
 		setFrame(0);
 	}
 	
+	/**
+	 * Creates a copy of the given filmstrip, sharing its texture.
+	 *
+	 * The copy has its own current frame, so it can be animated independently.
+	 *
+	 * @param other The filmstrip to copy
+	 */
+	public FilmStrip(FilmStrip other) {
+		super(other.getTexture());
+		this.cols = other.cols;
+		this.size = other.size;
+		this.rwidth = other.rwidth;
+		this.rheight = other.rheight;
+		setFrame(other.frame);
+	}
+
 	/**
 	 * Returns the number of frames in this filmstrip.
 	 * 
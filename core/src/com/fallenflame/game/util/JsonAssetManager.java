@@ -53,6 +53,8 @@ public class JsonAssetManager extends AssetManager {
 	/** The allocated sounds (for easy clean-up) */
 	ObjectMap<String,Sound> sounds;
 	
+	/** Per-thread copies of filmstrips for threads that simulate levels off the main thread */
+	private final ThreadLocal<ObjectMap<String,TextureRegion>> isolatedRegions = new ThreadLocal<ObjectMap<String,TextureRegion>>();
 	/** The singleton asset manager (for easy access) */
 	private static JsonAssetManager manager;
 	
@@ -343,6 +345,25 @@ public class JsonAssetManager extends AssetManager {
 		return sound;
 	}
 	
+	/**
+	 * Gives the calling thread its own copy of every filmstrip it asks for.
+	 *
+	 * Filmstrips hold their current frame, and game logic reads it (e.g. to know when a
+	 * death animation finished).  Threads that simulate levels concurrently must call
+	 * this first so their animations do not interfere.  Other assets are read-only and
+	 * remain shared.
+	 */
+	public void isolateThread() {
+		isolatedRegions.set(new ObjectMap<String,TextureRegion>());
+	}
+
+	/**
+	 * Releases the filmstrip copies made for the calling thread.
+	 */
+	public void releaseThread() {
+		isolatedRegions.remove();
+	}
+
 	/**
 	 * Returns the asset associate with the given directory key
 	 *
@@ -354,7 +375,15 @@ public class JsonAssetManager extends AssetManager {
 	public <T> T getEntry(String key, Class<T> type) {
 		try {
 			if (type.equals(TextureRegion.class)) {
-				return (T)regions.get(key);
+				TextureRegion region = regions.get(key);
+				ObjectMap<String,TextureRegion> isolated = isolatedRegions.get();
+				if (isolated != null && region instanceof FilmStrip) {
+					if (!isolated.containsKey(key)) {
+						isolated.put(key, new FilmStrip((FilmStrip)region));
+					}
+					return (T)isolated.get(key);
+				}
+				return (T)region;
 			} else if (type.equals(Texture.class)) {
 				return (T)textures.get(key);
 			} else if (type.equals(BitmapFont.class)) {
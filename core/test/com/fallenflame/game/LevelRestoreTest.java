@@ -0,0 +1,107 @@
+package com.fallenflame.game;
+
+import com.badlogic.gdx.ApplicationAdapter;
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.backends.headless.HeadlessApplication;
+import com.badlogic.gdx.backends.headless.HeadlessApplicationConfiguration;
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.utils.JsonReader;
+import com.badlogic.gdx.utils.JsonValue;
+import com.fallenflame.game.util.JsonAssetManager;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that LevelController.restore() can put removed models back into the world.
+ */
+public class LevelRestoreTest {
+    /** A level with items to pick up */
+    private static final String LEVEL_PATH = "levels/bryansfirstlevel.json";
+    /** Number of ticks to simulate after a restore */
+    private static final int TICKS = 120;
+
+    private static HeadlessApplication application;
+    private static JsonValue globalJson;
+
+    private LevelController level;
+    private LevelSnapshot start;
+
+    @BeforeClass
+    public static void loadAssets() {
+        application = new HeadlessApplication(new ApplicationAdapter() {}, new HeadlessApplicationConfiguration());
+        Gdx.gl = Gdx.gl20 = Mockito.mock(GL20.class);
+        JsonReader reader = new JsonReader();
+        globalJson = reader.parse(Gdx.files.internal("jsons/global.json"));
+        JsonAssetManager.getInstance().loadDirectory(reader.parse(Gdx.files.internal("jsons/assets.json")));
+        JsonAssetManager.getInstance().finishLoading();
+        JsonAssetManager.getInstance().allocateDirectory();
+    }
+
+    @AfterClass
+    public static void unloadAssets() {
+        JsonAssetManager.getInstance().unloadDirectory();
+        JsonAssetManager.clearInstance();
+        application.exit();
+    }
+
+    @Before
+    public void loadLevel() {
+        level = new LevelController();
+        level.setHeadless(true);
+        level.setSeed(0);
+        level.populate(new JsonReader().parse(Gdx.files.internal("jsons/" + LEVEL_PATH)), globalJson, null);
+        level.setLevelState(LevelController.LevelState.IN_PROGRESS);
+        level.getWorld().setContactListener(level);
+        start = level.snapshot();
+    }
+
+    @After
+    public void disposeLevel() {
+        level.dispose();
+    }
+
+    @Test
+    public void restorePutsPickedUpItemBack() {
+        assertFalse("Level has no items", level.getItems().isEmpty());
+        ItemModel item = level.getItems().get(0);
+
+        // Picking up an item deactivates it, and the next tick takes it out of the world
+        item.deactivate();
+        level.step();
+        assertFalse(level.getItems().contains(item));
+        assertNull(item.getBody());
+
+        level.restore(start);
+        assertTrue(level.getItems().contains(item));
+        assertTrue(item.isActive());
+        assertNotNull(item.getBody());
+        for (int i = 0; i < TICKS; i++) {
+            level.step();
+        }
+        assertTrue(level.getItems().contains(item));
+        assertSame(item, item.getBody().getUserData());
+    }
+
+    @Test
+    public void restoreCanBeRepeated() {
+        ItemModel item = level.getItems().get(0);
+        for (int attempt = 0; attempt < 3; attempt++) {
+            item.deactivate();
+            level.step();
+            level.createFlare(0);
+            for (int i = 0; i < TICKS; i++) {
+                level.step();
+            }
+            level.restore(start);
+            assertTrue(level.getItems().contains(item));
+            assertNotNull(item.getBody());
+            assertTrue(level.getFlares().isEmpty());
+        }
+    }
+}
@@ -3,6 +3,7 @@ package com.fallenflame.game.desktop;
 import com.badlogic.gdx.backends.lwjgl.LwjglApplication;
 import com.badlogic.gdx.backends.lwjgl.LwjglApplicationConfiguration;
 import com.fallenflame.game.GDXRoot;
+import com.fallenflame.game.LightController;
 
 public class DesktopLauncher {
 	public static void main (String[] arg) {
@@ -11,6 +12,33 @@ public class DesktopLauncher {
 		config.height = 720;
 		config.title = "Fallen Flame";
 		config.resizable = false;
-		new LwjglApplication(new GDXRoot(), config);
+		// "--batch <job.json>" simulates levels headlessly (see BatchRunner) and exits
+		String batchJob = null;
+		// "--light-quality <low|medium|high>" picks a light map preset; "--light-scale <fraction>" and
+		// "--light-blur <passes>" override its resolution and blur on their own
+		float lightScale = LightController.DEFAULT_LIGHT_MAP_SCALE;
+		int lightBlur = LightController.DEFAULT_BLUR_PASSES;
+		for (int i = 0; i < arg.length - 1; i++) {
+			if (arg[i].equals("--batch")) {
+				batchJob = arg[i + 1];
+			} else if (arg[i].equals("--light-quality")) {
+				LightController.setQuality(arg[i + 1]);
+				lightScale = LightController.getLightMapScale();
+				lightBlur = LightController.getBlurPasses();
+			}
+		}
+		for (int i = 0; i < arg.length - 1; i++) {
+			try {
+				if (arg[i].equals("--light-scale")) {
+					lightScale = Float.parseFloat(arg[i + 1]);
+				} else if (arg[i].equals("--light-blur")) {
+					lightBlur = Integer.parseInt(arg[i + 1]);
+				}
+			} catch (NumberFormatException e) {
+				System.err.println("Ignoring " + arg[i] + " " + arg[i + 1] + ": not a number");
+			}
+		}
+		LightController.setQuality(lightScale, lightBlur);
+		new LwjglApplication(new GDXRoot(batchJob), config);
 	}
 }